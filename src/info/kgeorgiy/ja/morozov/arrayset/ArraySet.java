@@ -1,50 +1,144 @@
 package info.kgeorgiy.ja.morozov.arrayset;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.stream.IntStream;
 
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
-    private final List<T> data;
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+    private static final int PARALLEL_PART_SIZE = 1 << 16;
+
+    // this set is the range [offset, offset + size) of the sorted root array, possibly reversed
+    private final Object[] elements;
+    private final int offset;
+    private final int size;
+    private final boolean reversed;
+    // order of the root array and of this set
+    private final Comparator<? super T> order;
     private final Comparator<? super T> comparator;
 
-    private ArraySet(ArrayView<T> data, Comparator<? super T> comparator) {
-        this.data = data;
-        this.comparator = comparator;
+    private ArraySet(Object[] elements, Comparator<? super T> order, int offset, int size, boolean reversed) {
+        this.elements = elements;
+        this.order = order;
+        this.comparator = reversed ? Collections.reverseOrder(order) : order;
+        this.offset = offset;
+        this.size = size;
+        this.reversed = reversed;
     }
 
-    private ArraySet(List<T> data, Comparator<? super T> comparator) {
-        this.data = data;
-        this.comparator = comparator;
+    private ArraySet(Object[] elements, Comparator<? super T> comparator) {
+        this(elements, comparator, 0, elements.length, false);
     }
 
     public ArraySet() {
-        this(Collections.emptyList(), null);
+        this(new Object[0], null);
     }
 
     public ArraySet(SortedSet<T> data, Comparator<? super T> comparator) {
-        assert data.comparator() != null;
-        if (data.comparator().equals(comparator)) {
-            this.data = List.copyOf(data);
-        } else {
-            TreeSet<T> tmpTreeSet = new TreeSet<>(comparator);
-            tmpTreeSet.addAll(data);
-            this.data = List.copyOf(tmpTreeSet);
-        }
-        this.comparator = comparator;
+        this(sortedCopy(data, comparator), comparator);
     }
 
     public ArraySet(Collection<? extends T> data, final Comparator<? super T> comparator) {
-        TreeSet<T> tmpTreeSet = new TreeSet<>(comparator);
-        tmpTreeSet.addAll(data);
-        this.data = List.copyOf(tmpTreeSet);
-        this.comparator = comparator;
+        this(sortedCopy(data, comparator), comparator);
     }
 
     public ArraySet(Collection<? extends T> data) {
         this(data, null);
     }
 
+    private static <T> Object[] sortedCopy(SortedSet<T> data, Comparator<? super T> comparator) {
+        assert data.comparator() != null;
+        if (data.comparator().equals(comparator)) {
+            return data.toArray();
+        }
+        return sortedCopy((Collection<T>) data, comparator);
+    }
+
+    // same result as copying through a TreeSet: sorted by comparator, the first of equal elements is kept
+    @SuppressWarnings("unchecked")
+    private static <T> Object[] sortedCopy(Collection<? extends T> data, Comparator<? super T> comparator) {
+        T[] items = (T[]) data.toArray();
+        Comparator<? super T> order = comparator == null ? (Comparator<T>) Comparator.naturalOrder() : comparator;
+        if (items.length == 1) {
+            // type and null check, as TreeSet does for its first element
+            order.compare(items[0], items[0]);
+        }
+        int size = 1;
+        while (size < items.length && order.compare(items[size - 1], items[size]) <= 0) {
+            size++;
+        }
+        if (size < items.length) {
+            // both sorts are stable and run-adaptive, so nearly sorted input stays cheap
+            if (items.length >= PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(items, order);
+            } else {
+                Arrays.sort(items, order);
+            }
+        }
+        size = Math.min(1, items.length);
+        for (int i = 1; i < items.length; i++) {
+            if (order.compare(items[size - 1], items[i]) != 0) {
+                items[size++] = items[i];
+            }
+        }
+        return size == items.length ? items : Arrays.copyOf(items, size);
+    }
+
+    // separate kernels for natural order and for a comparator keep the compare call sites monomorphic,
+    // reversed views search the root array in its own order instead of going through a reversed comparator
+    @SuppressWarnings("unchecked")
+    private static <T> int naturalSearch(Object[] elements, int from, int to, T item) {
+        to--;
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            int cmp = ((Comparable<T>) elements[mid]).compareTo(item);
+            if (cmp < 0) {
+                from = mid + 1;
+            } else if (cmp > 0) {
+                to = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -from - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> int comparatorSearch(Object[] elements, int from, int to, T item,
+                                            Comparator<? super T> comparator) {
+        to--;
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            int cmp = comparator.compare((T) elements[mid], item);
+            if (cmp < 0) {
+                from = mid + 1;
+            } else if (cmp > 0) {
+                to = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -from - 1;
+    }
+
     private int binarySearch(T item) {
-        return Collections.binarySearch(data, item, comparator);
+        int found;
+        if (order == null) {
+            found = naturalSearch(elements, offset, offset + size, item);
+        } else {
+            found = comparatorSearch(elements, offset, offset + size, item, order);
+        }
+        if (!reversed) {
+            return found < 0 ? found + offset : found - offset;
+        }
+        // elements greater than item come first in reversed order
+        return found < 0 ? -(offset + size + found + 1) - 1 : offset + size - 1 - found;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int position) {
+        return (T) elements[reversed ? offset + size - 1 - position : offset + position];
     }
 
     private int lowerBound(T item, boolean inclusive) {
@@ -67,25 +161,279 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     @Override
     public T lower(T item) {
         int index = lowerBound(item, false);
-        return index < 0 ? null : data.get(index);
+        return index < 0 ? null : get(index);
     }
 
     @Override
     public T floor(T item) {
         int index = lowerBound(item, true);
-        return index < 0 ? null : data.get(index);
+        return index < 0 ? null : get(index);
     }
 
     @Override
     public T ceiling(T item) {
         int index = upperBound(item, true);
-        return index == size() ? null : data.get(index);
+        return index == size() ? null : get(index);
     }
 
     @Override
     public T higher(T item) {
         int index = upperBound(item, false);
-        return index == size() ? null : data.get(index);
+        return index == size() ? null : get(index);
+    }
+
+    private int binarySearch(T item, int from, int to) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            int cmp = compare(get(mid), item);
+            if (cmp < 0) {
+                from = mid + 1;
+            } else if (cmp > 0) {
+                to = mid;
+            } else {
+                return mid;
+            }
+        }
+        return -from - 1;
+    }
+
+    // binarySearch result for every item; items sorted in set order are swept left to right,
+    // galloping from the previous position, which costs O(k log(n / k)) instead of O(k log n)
+    private int[] binarySearchAll(T[] items) {
+        int[] found = new int[items.length];
+        int sorted = 1;
+        while (sorted < items.length && compare(items[sorted - 1], items[sorted]) <= 0) {
+            sorted++;
+        }
+        if (sorted < items.length) {
+            for (int i = 0; i < items.length; i++) {
+                found[i] = binarySearch(items[i]);
+            }
+            return found;
+        }
+        int from = 0;
+        for (int i = 0; i < items.length; i++) {
+            found[i] = gallop(items[i], from);
+            from = insertionPoint(found[i]);
+        }
+        return found;
+    }
+
+    // binarySearch result over positions [from, size), probing from + 1, from + 2, from + 4, ... first
+    private int gallop(T item, int from) {
+        int step = 1;
+        while (from + step < size && compare(get(from + step - 1), item) < 0) {
+            from += step;
+            step *= 2;
+        }
+        return binarySearch(item, from, Math.min(from + step, size));
+    }
+
+    private static int insertionPoint(int found) {
+        return found < 0 ? -(found + 1) : found;
+    }
+
+    public BitSet containsEach(T[] items) {
+        int[] found = binarySearchAll(items);
+        BitSet result = new BitSet(items.length);
+        for (int i = 0; i < items.length; i++) {
+            if (found[i] >= 0) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    public T[] floorAll(T[] items) {
+        int[] found = binarySearchAll(items);
+        T[] result = Arrays.copyOf(items, items.length);
+        for (int i = 0; i < items.length; i++) {
+            int index = found[i] < 0 ? -(found[i] + 1) - 1 : found[i];
+            result[i] = index < 0 ? null : get(index);
+        }
+        return result;
+    }
+
+    public T[] ceilingAll(T[] items) {
+        int[] found = binarySearchAll(items);
+        T[] result = Arrays.copyOf(items, items.length);
+        for (int i = 0; i < items.length; i++) {
+            int index = insertionPoint(found[i]);
+            result[i] = index == size() ? null : get(index);
+        }
+        return result;
+    }
+
+    // number of elements less than each item
+    public int[] rankAll(T[] items) {
+        int[] found = binarySearchAll(items);
+        for (int i = 0; i < found.length; i++) {
+            found[i] = insertionPoint(found[i]);
+        }
+        return found;
+    }
+
+    // number of elements less than item, the same as headSet(item).size() without creating a view
+    public int rank(T item) {
+        return insertionPoint(binarySearch(item));
+    }
+
+    // k-th element in iteration order, counting from 0
+    public T select(int k) {
+        Objects.checkIndex(k, size);
+        return get(k);
+    }
+
+    // the same as subSet(fromElement, fromInclusive, toElement, toInclusive).size() without creating a view
+    public int count(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        int l = upperBound(fromElement, fromInclusive);
+        int r = lowerBound(toElement, toInclusive);
+        if (l > r && compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("Left border more than right border");
+        }
+        return Math.max(0, r - l + 1);
+    }
+
+    private void copy(int from, int to, Object[] target, int position) {
+        if (!reversed) {
+            System.arraycopy(elements, offset + from, target, position, to - from);
+        } else {
+            for (int i = from; i < to; i++) {
+                target[position++] = get(i);
+            }
+        }
+    }
+
+    // results are merged into an array of the worst-case size; it is trimmed unless almost all of it is used,
+    // so a small union or intersection of large sets does not keep their combined size alive
+    private ArraySet<T> result(Object[] result, int size) {
+        Object[] trimmed = result.length - size > result.length >>> 3 ? Arrays.copyOf(result, size) : result;
+        return new ArraySet<>(trimmed, comparator, 0, size, false);
+    }
+
+    private void checkComparator(ArraySet<T> other) {
+        if (!Objects.equals(comparator, other.comparator)) {
+            throw new IllegalArgumentException("Sets are ordered by different comparators");
+        }
+    }
+
+    // set algebra merges both sets in order; the smaller set is walked and the larger one is galloped over,
+    // so skewed sizes cost O(m log(n / m)) comparisons; elements of this set win over equal elements of the other
+
+    public ArraySet<T> union(ArraySet<T> other) {
+        checkComparator(other);
+        boolean mineSmaller = size <= other.size;
+        ArraySet<T> small = mineSmaller ? this : other;
+        ArraySet<T> large = mineSmaller ? other : this;
+        Object[] result = new Object[size + other.size];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < small.size; i++) {
+            T item = small.get(i);
+            int found = large.gallop(item, j);
+            int point = insertionPoint(found);
+            large.copy(j, point, result, count);
+            count += point - j;
+            result[count++] = found >= 0 && !mineSmaller ? large.get(found) : item;
+            j = found >= 0 ? found + 1 : point;
+        }
+        large.copy(j, large.size, result, count);
+        count += large.size - j;
+        return result(result, count);
+    }
+
+    public ArraySet<T> intersection(ArraySet<T> other) {
+        checkComparator(other);
+        boolean mineSmaller = size <= other.size;
+        ArraySet<T> small = mineSmaller ? this : other;
+        ArraySet<T> large = mineSmaller ? other : this;
+        Object[] result = new Object[small.size];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < small.size && j < large.size; i++) {
+            T item = small.get(i);
+            int found = large.gallop(item, j);
+            if (found >= 0) {
+                result[count++] = mineSmaller ? item : large.get(found);
+            }
+            j = found >= 0 ? found + 1 : insertionPoint(found);
+        }
+        return result(result, count);
+    }
+
+    public ArraySet<T> difference(ArraySet<T> other) {
+        checkComparator(other);
+        Object[] result = new Object[size];
+        int count = 0;
+        if (size <= other.size) {
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                T item = get(i);
+                int found = other.gallop(item, j);
+                if (found < 0) {
+                    result[count++] = item;
+                }
+                j = found >= 0 ? found + 1 : insertionPoint(found);
+            }
+        } else {
+            int i = 0;
+            for (int j = 0; j < other.size && i < size; j++) {
+                int found = gallop(other.get(j), i);
+                int point = insertionPoint(found);
+                copy(i, point, result, count);
+                count += point - i;
+                i = found >= 0 ? found + 1 : point;
+            }
+            copy(i, size, result, count);
+            count += size - i;
+        }
+        return result(result, count);
+    }
+
+    public ArraySet<T> parallelUnion(ArraySet<T> other) {
+        return parallel(other, ArraySet::union);
+    }
+
+    public ArraySet<T> parallelIntersection(ArraySet<T> other) {
+        return parallel(other, ArraySet::intersection);
+    }
+
+    public ArraySet<T> parallelDifference(ArraySet<T> other) {
+        return parallel(other, ArraySet::difference);
+    }
+
+    // splits this set into equal parts, splits the other one at the first element of each part
+    // and applies the operation to the pairs of parts in the common ForkJoinPool
+    private ArraySet<T> parallel(ArraySet<T> other, BinaryOperator<ArraySet<T>> operation) {
+        checkComparator(other);
+        int parts = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4,
+                (size + other.size) / PARALLEL_PART_SIZE);
+        if (parts <= 1 || size < parts) {
+            return operation.apply(this, other);
+        }
+        int[] mine = new int[parts + 1];
+        int[] theirs = new int[parts + 1];
+        for (int k = 1; k < parts; k++) {
+            mine[k] = (int) ((long) size * k / parts);
+            theirs[k] = insertionPoint(other.binarySearch(get(mine[k]), theirs[k - 1], other.size));
+        }
+        mine[parts] = size;
+        theirs[parts] = other.size;
+        List<ArraySet<T>> results = IntStream.range(0, parts).parallel()
+                .mapToObj(k -> operation.apply(slice(mine[k], mine[k + 1]), other.slice(theirs[k], theirs[k + 1])))
+                .toList();
+        Object[] result = new Object[results.stream().mapToInt(ArraySet::size).sum()];
+        int count = 0;
+        for (ArraySet<T> part : results) {
+            part.copy(0, part.size, result, count);
+            count += part.size;
+        }
+        return result(result, count);
+    }
+
+    private ArraySet<T> slice(int from, int to) {
+        int sliceOffset = reversed ? offset + size - to : offset + from;
+        return new ArraySet<>(elements, order, sliceOffset, to - from, reversed);
     }
 
     @Override
@@ -100,12 +448,27 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public Iterator<T> iterator() {
-        return data.iterator();
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(position++);
+            }
+        };
     }
 
     @Override
     public NavigableSet<T> descendingSet() {
-        return new ArraySet<>(new ArrayView<T>(data), Collections.reverseOrder(comparator));
+        return new ArraySet<>(elements, order, offset, size, !reversed);
     }
 
     @Override
@@ -129,10 +492,11 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
             if (exception && compare(fromElement, toElement) > 0) {
                 throw new IllegalArgumentException("Left border more than right border");
             } else {
-                return new ArraySet<>(Collections.emptyList(), comparator);
+                return new ArraySet<>(elements, order, offset, 0, reversed);
             }
         }
-        return new ArraySet<>(data.subList(l, r + 1), comparator);
+        int subOffset = reversed ? offset + size - 1 - r : offset + l;
+        return new ArraySet<>(elements, order, subOffset, r - l + 1, reversed);
     }
 
     @Override
@@ -142,12 +506,12 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public NavigableSet<T> headSet(T toElement, boolean inclusive) {
-        return data.isEmpty() ? this : subSet(first(), true, toElement, inclusive, false);
+        return isEmpty() ? this : subSet(first(), true, toElement, inclusive, false);
     }
 
     @Override
     public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
-        return data.isEmpty() ? this : subSet(fromElement, inclusive, last(), true, false);
+        return isEmpty() ? this : subSet(fromElement, inclusive, last(), true, false);
     }
 
     @Override
@@ -175,7 +539,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (isEmpty()) {
             throw new NoSuchElementException("ArraySet is empty");
         }
-        return data.get(0);
+        return get(0);
     }
 
     @Override
@@ -183,12 +547,12 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (isEmpty()) {
             throw new NoSuchElementException("ArraySet is empty");
         }
-        return data.get(size() - 1);
+        return get(size() - 1);
     }
 
     @Override
     public int size() {
-        return data.size();
+        return size;
     }
 
     @Override
@@ -198,11 +562,11 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     public boolean isEmpty() {
-        return data.isEmpty();
+        return size == 0;
     }
 
     public void dump() {
-        for (T item : data) {
+        for (T item : this) {
             System.out.println(item);
         }
     }
@@ -0,0 +1,137 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.*;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Lookup throughput of the array sets: {@code java ArraySetBenchmark <scenario> [sizes...]}.
+ * Every case runs {@value #QUERIES} random queries per round, the best of {@value #ROUNDS} rounds
+ * after {@value #WARMUP_ROUNDS} warm-up rounds is printed in ns/op.
+ * Sets of more than a few million elements need a larger heap ({@code -Xmx}).
+ */
+public class ArraySetBenchmark {
+    private static final int QUERIES = 1 << 20;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static final int[] DEFAULT_SIZES = {1 << 10, 1 << 16, 1 << 20, 1 << 22, 1 << 24};
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        if (args == null || args.length == 0) {
+            System.err.println("Usage: ArraySetBenchmark search|floor [sizes...]");
+            return;
+        }
+        int[] sizes = args.length == 1 ? DEFAULT_SIZES
+                : Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray();
+        for (int size : sizes) {
+            switch (args[0]) {
+                case "search" -> search(size);
+                case "floor" -> floor(size);
+                default -> {
+                    System.err.println("Unknown scenario " + args[0]);
+                    return;
+                }
+            }
+        }
+        if (sink == 42) {
+            System.err.println();
+        }
+    }
+
+    // binary search of the primitive sets against their opt-in B+-tree index
+    private static void search(int size) {
+        Random random = new Random(size);
+        long[] data = random.longs(size).sorted().distinct().toArray();
+        long[] queries = queries(random, data);
+        LongArraySet plain = LongArraySet.of(data);
+        LongArraySet indexed = LongArraySet.indexedOf(data);
+        measure("long[] binarySearch", size, i -> Arrays.binarySearch(data, queries[i]));
+        measure("LongArraySet floorIndex", size, i -> plain.floorIndex(queries[i]));
+        measure("LongArraySet indexed floorIndex", size, i -> indexed.floorIndex(queries[i]));
+        measure("LongArraySet indexed containsLong", size, i -> indexed.containsLong(queries[i]) ? 1 : 0);
+
+        int[] ints = Arrays.stream(data).mapToInt(item -> (int) (item >>> 32)).sorted().distinct().toArray();
+        int[] intQueries = Arrays.stream(queries(random, Arrays.stream(ints).asLongStream().toArray()))
+                .mapToInt(item -> (int) item).toArray();
+        IntArraySet plainInts = IntArraySet.of(ints);
+        IntArraySet indexedInts = IntArraySet.indexedOf(ints);
+        measure("IntArraySet floorIndex", size, i -> plainInts.floorIndex(intQueries[i]));
+        measure("IntArraySet indexed floorIndex", size, i -> indexedInts.floorIndex(intQueries[i]));
+    }
+
+    // descendingSet().floor() of ArraySet against a binary search through a reversed list view
+    // with a reversed comparator, the way ArraySet searched before the dedicated kernels
+    private static void floor(int size) {
+        Random random = new Random(size);
+        long[] data = random.longs(size).sorted().distinct().toArray();
+        Long[] boxed = Arrays.stream(data).boxed().toArray(Long[]::new);
+        Long[] queries = Arrays.stream(queries(random, data)).boxed().toArray(Long[]::new);
+        Comparator<Long> comparator = Long::compare;
+
+        List<Long> view = reversedView(boxed);
+        Comparator<Long> reversedNatural = Collections.reverseOrder();
+        Comparator<Long> reversedComparator = Collections.reverseOrder(comparator);
+        measure("reversed view natural", size, i -> viewFloor(view, queries[i], reversedNatural));
+        measure("reversed view comparator", size, i -> viewFloor(view, queries[i], reversedComparator));
+
+        NavigableSet<Long> natural = new ArraySet<>(List.of(boxed)).descendingSet();
+        NavigableSet<Long> ordered = new ArraySet<>(List.of(boxed), comparator).descendingSet();
+        measure("ArraySet descending natural", size, i -> unbox(natural.floor(queries[i])));
+        measure("ArraySet descending comparator", size, i -> unbox(ordered.floor(queries[i])));
+
+        NavigableSet<Long> tree = new TreeSet<>(List.of(boxed)).descendingSet();
+        measure("TreeSet descending", size, i -> unbox(tree.floor(queries[i])));
+    }
+
+    private static List<Long> reversedView(Long[] data) {
+        class ReversedView extends AbstractList<Long> implements RandomAccess {
+            @Override
+            public Long get(int index) {
+                return data[data.length - 1 - index];
+            }
+
+            @Override
+            public int size() {
+                return data.length;
+            }
+        }
+        return new ReversedView();
+    }
+
+    private static long viewFloor(List<Long> view, Long item, Comparator<Long> comparator) {
+        int found = Collections.binarySearch(view, item, comparator);
+        int index = found >= 0 ? found : -found - 2;
+        return index < 0 ? 0 : view.get(index);
+    }
+
+    private static long unbox(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    // half of the queries are present in the set
+    private static long[] queries(Random random, long[] data) {
+        long[] queries = random.longs(QUERIES).toArray();
+        for (int i = 0; i < queries.length; i += 2) {
+            queries[i] = data[random.nextInt(data.length)];
+        }
+        return queries;
+    }
+
+    private static void measure(String name, int size, IntToLongFunction query) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                sum += query.applyAsLong(i);
+            }
+            long time = System.nanoTime() - start;
+            sink += sum;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, time);
+            }
+        }
+        System.out.printf("%-32s %10d %8.1f ns/op%n", name, size, (double) best / QUERIES);
+    }
+}
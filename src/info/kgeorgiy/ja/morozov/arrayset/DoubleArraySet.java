@@ -0,0 +1,134 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PrimitiveIterator;
+
+public class DoubleArraySet extends PrimitiveArraySet<Double, DoubleArraySet> {
+    private final double[] data;
+
+    private DoubleArraySet(double[] data, int from, int to, boolean reversed) {
+        super(from, to, reversed);
+        this.data = data;
+    }
+
+    private DoubleArraySet(double[] data) {
+        this(data, 0, data.length, false);
+    }
+
+    public DoubleArraySet() {
+        this(new double[0]);
+    }
+
+    public DoubleArraySet(Collection<Double> data) {
+        this(sorted(data.stream().mapToDouble(Double::doubleValue).toArray()));
+    }
+
+    public static DoubleArraySet of(double... data) {
+        return new DoubleArraySet(sorted(data.clone()));
+    }
+
+    private static double[] sorted(double[] data) {
+        Arrays.sort(data);
+        int size = 0;
+        for (double item : data) {
+            if (size == 0 || Double.compare(data[size - 1], item) != 0) {
+                data[size++] = item;
+            }
+        }
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private int searchDouble(double item) {
+        return Arrays.binarySearch(data, from, to, item);
+    }
+
+    @Override
+    protected int search(Double item) {
+        return searchDouble(item);
+    }
+
+    @Override
+    protected Double element(int index) {
+        return data[index];
+    }
+
+    @Override
+    protected int compareKeys(Double a, Double b) {
+        return Double.compare(a, b);
+    }
+
+    @Override
+    protected DoubleArraySet view(int from, int to, boolean reversed) {
+        return new DoubleArraySet(data, from, to, reversed);
+    }
+
+    public double getDouble(int position) {
+        return data[index(position)];
+    }
+
+    // positions in iteration order, -1 if there is no such element
+    public int lowerIndex(double item) {
+        return lowerIndex(searchDouble(item), false);
+    }
+
+    public int floorIndex(double item) {
+        return lowerIndex(searchDouble(item), true);
+    }
+
+    public int ceilingIndex(double item) {
+        return higherIndex(searchDouble(item), true);
+    }
+
+    public int higherIndex(double item) {
+        return higherIndex(searchDouble(item), false);
+    }
+
+    public boolean containsDouble(double item) {
+        return searchDouble(item) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return item instanceof Double value && containsDouble(value);
+    }
+
+    public double firstDouble() {
+        return data[firstIndex()];
+    }
+
+    public double lastDouble() {
+        return data[lastIndex()];
+    }
+
+    public DoubleArraySet subSet(double fromElement, boolean fromInclusive, double toElement, boolean toInclusive) {
+        return range(searchDouble(fromElement), fromInclusive, searchDouble(toElement), toInclusive,
+                Double.compare(fromElement, toElement));
+    }
+
+    public DoubleArraySet headSet(double toElement, boolean inclusive) {
+        return head(searchDouble(toElement), inclusive);
+    }
+
+    public DoubleArraySet tailSet(double fromElement, boolean inclusive) {
+        return tail(searchDouble(fromElement), inclusive);
+    }
+
+    public double[] toDoubleArray() {
+        double[] result = new double[size()];
+        Arrays.setAll(result, this::getDouble);
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfDouble iterator() {
+        return new DoubleCursor();
+    }
+
+    private class DoubleCursor extends Cursor implements PrimitiveIterator.OfDouble {
+        @Override
+        public double nextDouble() {
+            return data[nextIndex()];
+        }
+    }
+}
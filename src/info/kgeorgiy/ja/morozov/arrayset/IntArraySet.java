@@ -0,0 +1,149 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PrimitiveIterator;
+
+/**
+ * Set of {@code int} keys over a sorted array. Sets created by {@link #indexedOf} or with {@code indexed}
+ * are searched through an {@link IntBTreeIndex} built along with the array, the others by a binary search.
+ */
+public class IntArraySet extends PrimitiveArraySet<Integer, IntArraySet> {
+    private final int[] data;
+    // null when the set is searched by Arrays.binarySearch
+    private final IntBTreeIndex index;
+
+    private IntArraySet(int[] data, IntBTreeIndex index, int from, int to, boolean reversed) {
+        super(from, to, reversed);
+        this.data = data;
+        this.index = index;
+    }
+
+    private IntArraySet(int[] data, boolean indexed) {
+        this(data, indexed ? new IntBTreeIndex(data) : null, 0, data.length, false);
+    }
+
+    public IntArraySet() {
+        this(new int[0], false);
+    }
+
+    public IntArraySet(Collection<Integer> data) {
+        this(data, false);
+    }
+
+    public IntArraySet(Collection<Integer> data, boolean indexed) {
+        this(sorted(data.stream().mapToInt(Integer::intValue).toArray()), indexed);
+    }
+
+    public static IntArraySet of(int... data) {
+        return new IntArraySet(sorted(data.clone()), false);
+    }
+
+    public static IntArraySet indexedOf(int... data) {
+        return new IntArraySet(sorted(data.clone()), true);
+    }
+
+    private static int[] sorted(int[] data) {
+        Arrays.sort(data);
+        int size = 0;
+        for (int item : data) {
+            if (size == 0 || data[size - 1] != item) {
+                data[size++] = item;
+            }
+        }
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private int searchInt(int item) {
+        return index == null ? Arrays.binarySearch(data, from, to, item) : restrict(index.search(item));
+    }
+
+    @Override
+    protected int search(Integer item) {
+        return searchInt(item);
+    }
+
+    @Override
+    protected Integer element(int index) {
+        return data[index];
+    }
+
+    @Override
+    protected int compareKeys(Integer a, Integer b) {
+        return Integer.compare(a, b);
+    }
+
+    @Override
+    protected IntArraySet view(int from, int to, boolean reversed) {
+        return new IntArraySet(data, index, from, to, reversed);
+    }
+
+    public int getInt(int position) {
+        return data[index(position)];
+    }
+
+    // positions in iteration order, -1 if there is no such element
+    public int lowerIndex(int item) {
+        return lowerIndex(searchInt(item), false);
+    }
+
+    public int floorIndex(int item) {
+        return lowerIndex(searchInt(item), true);
+    }
+
+    public int ceilingIndex(int item) {
+        return higherIndex(searchInt(item), true);
+    }
+
+    public int higherIndex(int item) {
+        return higherIndex(searchInt(item), false);
+    }
+
+    public boolean containsInt(int item) {
+        return searchInt(item) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return item instanceof Integer value && containsInt(value);
+    }
+
+    public int firstInt() {
+        return data[firstIndex()];
+    }
+
+    public int lastInt() {
+        return data[lastIndex()];
+    }
+
+    public IntArraySet subSet(int fromElement, boolean fromInclusive, int toElement, boolean toInclusive) {
+        return range(searchInt(fromElement), fromInclusive, searchInt(toElement), toInclusive,
+                Integer.compare(fromElement, toElement));
+    }
+
+    public IntArraySet headSet(int toElement, boolean inclusive) {
+        return head(searchInt(toElement), inclusive);
+    }
+
+    public IntArraySet tailSet(int fromElement, boolean inclusive) {
+        return tail(searchInt(fromElement), inclusive);
+    }
+
+    public int[] toIntArray() {
+        int[] result = new int[size()];
+        Arrays.setAll(result, this::getInt);
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntCursor();
+    }
+
+    private class IntCursor extends Cursor implements PrimitiveIterator.OfInt {
+        @Override
+        public int nextInt() {
+            return data[nextIndex()];
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the LongBTreeIndex layout over a sorted int[], a block of BLOCK keys is one cache line
+class IntBTreeIndex {
+    private static final int BLOCK = 16;
+
+    // levels[0] is the sorted array
+    private final int[][] levels;
+
+    IntBTreeIndex(int[] sorted) {
+        List<int[]> levels = new ArrayList<>();
+        levels.add(sorted);
+        for (int[] level = sorted; level.length > BLOCK; ) {
+            int[] next = new int[(level.length + BLOCK - 1) / BLOCK];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = level[i * BLOCK];
+            }
+            levels.add(next);
+            level = next;
+        }
+        this.levels = levels.toArray(new int[0][]);
+    }
+
+    // Arrays.binarySearch result over the whole array
+    int search(int item) {
+        int position = 0;
+        for (int l = levels.length - 1; l >= 0; l--) {
+            int[] level = levels[l];
+            int from = position * BLOCK;
+            int to = Math.min(from + BLOCK, level.length);
+            // branch-free count of keys not greater than item, the block is sorted
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                count += level[i] <= item ? 1 : 0;
+            }
+            if (count == 0) {
+                // only possible in the first block: item is less than every key
+                return -1;
+            }
+            position = from + count - 1;
+        }
+        return levels[0][position] == item ? position : -position - 2;
+    }
+}
@@ -0,0 +1,150 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PrimitiveIterator;
+
+/**
+ * Set of {@code long} keys over a sorted array. Sets created by {@link #indexedOf} or with {@code indexed}
+ * are searched through a {@link LongBTreeIndex} built along with the array (one extra key per 15 elements),
+ * the others by a binary search over the array.
+ */
+public class LongArraySet extends PrimitiveArraySet<Long, LongArraySet> {
+    private final long[] data;
+    // null when the set is searched by Arrays.binarySearch
+    private final LongBTreeIndex index;
+
+    private LongArraySet(long[] data, LongBTreeIndex index, int from, int to, boolean reversed) {
+        super(from, to, reversed);
+        this.data = data;
+        this.index = index;
+    }
+
+    private LongArraySet(long[] data, boolean indexed) {
+        this(data, indexed ? new LongBTreeIndex(data) : null, 0, data.length, false);
+    }
+
+    public LongArraySet() {
+        this(new long[0], false);
+    }
+
+    public LongArraySet(Collection<Long> data) {
+        this(data, false);
+    }
+
+    public LongArraySet(Collection<Long> data, boolean indexed) {
+        this(sorted(data.stream().mapToLong(Long::longValue).toArray()), indexed);
+    }
+
+    public static LongArraySet of(long... data) {
+        return new LongArraySet(sorted(data.clone()), false);
+    }
+
+    public static LongArraySet indexedOf(long... data) {
+        return new LongArraySet(sorted(data.clone()), true);
+    }
+
+    private static long[] sorted(long[] data) {
+        Arrays.sort(data);
+        int size = 0;
+        for (long item : data) {
+            if (size == 0 || data[size - 1] != item) {
+                data[size++] = item;
+            }
+        }
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private int searchLong(long item) {
+        return index == null ? Arrays.binarySearch(data, from, to, item) : restrict(index.search(item));
+    }
+
+    @Override
+    protected int search(Long item) {
+        return searchLong(item);
+    }
+
+    @Override
+    protected Long element(int index) {
+        return data[index];
+    }
+
+    @Override
+    protected int compareKeys(Long a, Long b) {
+        return Long.compare(a, b);
+    }
+
+    @Override
+    protected LongArraySet view(int from, int to, boolean reversed) {
+        return new LongArraySet(data, index, from, to, reversed);
+    }
+
+    public long getLong(int position) {
+        return data[index(position)];
+    }
+
+    // positions in iteration order, -1 if there is no such element
+    public int lowerIndex(long item) {
+        return lowerIndex(searchLong(item), false);
+    }
+
+    public int floorIndex(long item) {
+        return lowerIndex(searchLong(item), true);
+    }
+
+    public int ceilingIndex(long item) {
+        return higherIndex(searchLong(item), true);
+    }
+
+    public int higherIndex(long item) {
+        return higherIndex(searchLong(item), false);
+    }
+
+    public boolean containsLong(long item) {
+        return searchLong(item) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return item instanceof Long value && containsLong(value);
+    }
+
+    public long firstLong() {
+        return data[firstIndex()];
+    }
+
+    public long lastLong() {
+        return data[lastIndex()];
+    }
+
+    public LongArraySet subSet(long fromElement, boolean fromInclusive, long toElement, boolean toInclusive) {
+        return range(searchLong(fromElement), fromInclusive, searchLong(toElement), toInclusive,
+                Long.compare(fromElement, toElement));
+    }
+
+    public LongArraySet headSet(long toElement, boolean inclusive) {
+        return head(searchLong(toElement), inclusive);
+    }
+
+    public LongArraySet tailSet(long fromElement, boolean inclusive) {
+        return tail(searchLong(fromElement), inclusive);
+    }
+
+    public long[] toLongArray() {
+        long[] result = new long[size()];
+        Arrays.setAll(result, this::getLong);
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongCursor();
+    }
+
+    private class LongCursor extends Cursor implements PrimitiveIterator.OfLong {
+        @Override
+        public long nextLong() {
+            return data[nextIndex()];
+        }
+    }
+}
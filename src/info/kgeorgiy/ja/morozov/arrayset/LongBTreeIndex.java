@@ -0,0 +1,49 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// implicit static B+-tree over a sorted long[]: every level keeps each BLOCK-th key of the level below,
+// the sorted array itself is the leaf level. A search scans one block of BLOCK keys (two cache lines)
+// per level, log_16(n) levels instead of log_2(n) dependent probes of a binary search
+class LongBTreeIndex {
+    private static final int BLOCK = 16;
+
+    // levels[0] is the sorted array
+    private final long[][] levels;
+
+    LongBTreeIndex(long[] sorted) {
+        List<long[]> levels = new ArrayList<>();
+        levels.add(sorted);
+        for (long[] level = sorted; level.length > BLOCK; ) {
+            long[] next = new long[(level.length + BLOCK - 1) / BLOCK];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = level[i * BLOCK];
+            }
+            levels.add(next);
+            level = next;
+        }
+        this.levels = levels.toArray(new long[0][]);
+    }
+
+    // Arrays.binarySearch result over the whole array
+    int search(long item) {
+        int position = 0;
+        for (int l = levels.length - 1; l >= 0; l--) {
+            long[] level = levels[l];
+            int from = position * BLOCK;
+            int to = Math.min(from + BLOCK, level.length);
+            // branch-free count of keys not greater than item, the block is sorted
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                count += level[i] <= item ? 1 : 0;
+            }
+            if (count == 0) {
+                // only possible in the first block: item is less than every key
+                return -1;
+            }
+            position = from + count - 1;
+        }
+        return levels[0][position] == item ? position : -position - 2;
+    }
+}
@@ -0,0 +1,249 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Set of strings in natural order served lazily from a memory-mapped file, nothing is decoded at load time.
+ * Strings are front-coded in blocks of {@link #BLOCK_SIZE}: the first string of a block is stored whole,
+ * the others as the length of the prefix shared with the previous string plus the rest of its UTF-8 bytes.
+ * A search is a binary search over the first strings of the blocks followed by a scan of one block.
+ * Sets of numbers are stored the same way by {@link OffHeapLongArraySet}.
+ */
+public class MappedStringSet extends PrimitiveArraySet<String, MappedStringSet> {
+    private static final int MAGIC = 0x53534554;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int BLOCK_SIZE = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    // block offsets table, stored at the end of the file
+    private final int blocks;
+
+    private MappedStringSet(MappedByteBuffer buffer, int count, int blocks, int from, int to, boolean reversed) {
+        super(from, to, reversed);
+        this.buffer = buffer;
+        this.count = count;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Writes the strings in natural order, without duplicates, to a file that {@link #map} can load.
+     */
+    public static void save(Path file, Collection<String> strings) throws IOException {
+        ArraySet<String> sorted = strings instanceof ArraySet<String> set && set.comparator() == null
+                ? set : new ArraySet<>(strings);
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sorted.size());
+                int[] offsets = new int[(sorted.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+                long position = HEADER_SIZE;
+                byte[] previous = new byte[0];
+                // reports unpaired surrogates instead of silently replacing them
+                CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+                int i = 0;
+                for (String item : sorted) {
+                    ByteBuffer encoded = encoder.encode(CharBuffer.wrap(item));
+                    byte[] bytes = new byte[encoded.remaining()];
+                    encoded.get(bytes);
+                    int shared = 0;
+                    if (i % BLOCK_SIZE == 0) {
+                        if (position > Integer.MAX_VALUE) {
+                            throw new IOException("Set doesn't fit in 2 GiB: " + file);
+                        }
+                        offsets[i / BLOCK_SIZE] = (int) position;
+                    } else {
+                        int limit = Math.min(previous.length, bytes.length);
+                        while (shared < limit && previous[shared] == bytes[shared]) {
+                            shared++;
+                        }
+                        position += writeVarInt(out, shared);
+                    }
+                    position += writeVarInt(out, bytes.length - shared);
+                    out.write(bytes, shared, bytes.length - shared);
+                    position += bytes.length - shared;
+                    previous = bytes;
+                    i++;
+                }
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static int writeVarInt(OutputStream out, int value) throws IOException {
+        int written = 1;
+        while ((value & ~0x7f) != 0) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+            written++;
+        }
+        out.write(value);
+        return written;
+    }
+
+    public static MappedStringSet map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a string set file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count = buffer.getInt(8);
+            int blocks = (int) (((long) count + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || count < 0
+                    || (long) HEADER_SIZE + (long) blocks * Integer.BYTES > channel.size()) {
+                throw new IOException("Not a string set file: " + file);
+            }
+            return new MappedStringSet(buffer, count, blocks, 0, count, false);
+        }
+    }
+
+    // decodes strings one by one from the start of a block
+    private final class BlockReader {
+        private int position;
+        private byte[] current = new byte[0];
+        private int index;
+
+        BlockReader(int block) {
+            position = buffer.getInt(buffer.capacity() - (blocks - block) * Integer.BYTES);
+            index = block * BLOCK_SIZE;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(position++);
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        String next() {
+            int shared = index % BLOCK_SIZE == 0 ? 0 : readVarInt();
+            byte[] bytes = Arrays.copyOf(current, shared + readVarInt());
+            buffer.get(position, bytes, shared, bytes.length - shared);
+            position += bytes.length - shared;
+            current = bytes;
+            index++;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Arrays.binarySearch result over the whole file
+    private int searchAll(String item) {
+        int l = 0;
+        int r = blocks - 1;
+        while (l <= r) {
+            int mid = (l + r) >>> 1;
+            int cmp = new BlockReader(mid).next().compareTo(item);
+            if (cmp < 0) {
+                l = mid + 1;
+            } else if (cmp > 0) {
+                r = mid - 1;
+            } else {
+                return mid * BLOCK_SIZE;
+            }
+        }
+        if (r < 0) {
+            return -1;
+        }
+        BlockReader reader = new BlockReader(r);
+        int end = Math.min(count, (r + 1) * BLOCK_SIZE);
+        for (int i = r * BLOCK_SIZE; i < end; i++) {
+            int cmp = reader.next().compareTo(item);
+            if (cmp == 0) {
+                return i;
+            } else if (cmp > 0) {
+                return -i - 1;
+            }
+        }
+        return -end - 1;
+    }
+
+    @Override
+    protected int search(String item) {
+        return restrict(searchAll(item));
+    }
+
+    @Override
+    protected String element(int index) {
+        BlockReader reader = new BlockReader(index / BLOCK_SIZE);
+        String item = reader.next();
+        for (int i = index % BLOCK_SIZE; i > 0; i--) {
+            item = reader.next();
+        }
+        return item;
+    }
+
+    @Override
+    protected int compareKeys(String a, String b) {
+        return a.compareTo(b);
+    }
+
+    @Override
+    protected MappedStringSet view(int from, int to, boolean reversed) {
+        return new MappedStringSet(buffer, count, blocks, from, to, reversed);
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return item instanceof String string && search(string) >= 0;
+    }
+
+    // decodes a whole block at a time
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private final String[] decoded = new String[BLOCK_SIZE];
+            private int decodedBlock = -1;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int index = index(position++);
+                if (index / BLOCK_SIZE != decodedBlock) {
+                    decodedBlock = index / BLOCK_SIZE;
+                    BlockReader reader = new BlockReader(decodedBlock);
+                    int size = Math.min(BLOCK_SIZE, count - decodedBlock * BLOCK_SIZE);
+                    for (int i = 0; i < size; i++) {
+                        decoded[i] = reader.next();
+                    }
+                }
+                return decoded[index % BLOCK_SIZE];
+            }
+        };
+    }
+}
@@ -0,0 +1,603 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.*;
+
+/**
+ * Mutable sorted set stored as an immutable sorted array plus a delta of pending inserts and deletes.
+ * The delta is merged into a new array once it grows to a fraction of the array, so a write costs
+ * amortized O(log n). Deleted array elements are tracked by a Fenwick tree of live counts and inserts
+ * by an {@link OrderStatisticTree}, so point queries, {@code size} of a view and a step of an iterator
+ * take O(log n) however many changes are pending. Iterators merge the array and the inserts lazily
+ * and see the changes made during the walk ahead of their position.
+ * Null elements are not permitted.
+ */
+public class MutableArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private static final int MIN_DELTA_SIZE = 1024;
+    private static final int DELTA_SHIFT = 3;
+
+    private final Storage<T> storage;
+    // bounds in ascending order, a view is restricted to them
+    private final T low;
+    private final boolean hasLow;
+    private final boolean lowInclusive;
+    private final T high;
+    private final boolean hasHigh;
+    private final boolean highInclusive;
+    private final boolean descending;
+
+    private MutableArraySet(Storage<T> storage, T low, boolean hasLow, boolean lowInclusive,
+                            T high, boolean hasHigh, boolean highInclusive, boolean descending) {
+        this.storage = storage;
+        this.low = low;
+        this.hasLow = hasLow;
+        this.lowInclusive = lowInclusive;
+        this.high = high;
+        this.hasHigh = hasHigh;
+        this.highInclusive = highInclusive;
+        this.descending = descending;
+    }
+
+    public MutableArraySet(Collection<? extends T> data, Comparator<? super T> comparator) {
+        this(new Storage<>(new ArraySet<T>(data, comparator).toArray(), comparator),
+                null, false, false, null, false, false, false);
+    }
+
+    public MutableArraySet(Comparator<? super T> comparator) {
+        this(Collections.emptyList(), comparator);
+    }
+
+    public MutableArraySet(Collection<? extends T> data) {
+        this(data, null);
+    }
+
+    public MutableArraySet() {
+        this(Collections.emptyList(), null);
+    }
+
+    private static final class Storage<T> {
+        private final Comparator<? super T> comparator;
+        private Object[] base;
+        // elements missing from base
+        private final OrderStatisticTree<T> inserts;
+        // deleted elements of base, null until the first delete after a merge
+        private BitSet deleted;
+        // Fenwick tree over base: live[i] sums the live flags of (i - lowbit(i), i]
+        private int[] live;
+        private int deletedCount;
+        private int size;
+        // changed by every write, iterators resynchronize on it
+        private int modCount;
+
+        Storage(Object[] base, Comparator<? super T> comparator) {
+            this.comparator = comparator;
+            this.base = base;
+            this.inserts = new OrderStatisticTree<>(comparator);
+            this.size = base.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        int compare(T a, T b) {
+            if (comparator == null) {
+                return ((Comparable<T>) a).compareTo(b);
+            }
+            return comparator.compare(a, b);
+        }
+
+        @SuppressWarnings("unchecked")
+        T base(int index) {
+            return (T) base[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        private int search(T item) {
+            return Arrays.binarySearch((T[]) base, item, comparator);
+        }
+
+        // index of the greatest base element less than (or equal to) item, -1 if there is none
+        int baseLower(T item, boolean inclusive) {
+            int found = search(item);
+            if (found < 0) {
+                return -(found + 1) - 1;
+            }
+            return inclusive ? found : found - 1;
+        }
+
+        // index of the least base element greater than (or equal to) item, base.length if there is none
+        int baseHigher(T item, boolean inclusive) {
+            int found = search(item);
+            if (found < 0) {
+                return -(found + 1);
+            }
+            return inclusive ? found : found + 1;
+        }
+
+        private boolean deleted(int index) {
+            return deleted != null && deleted.get(index);
+        }
+
+        // number of live base elements among the first index ones
+        private int liveBefore(int index) {
+            if (live == null) {
+                return index;
+            }
+            int count = 0;
+            for (; index > 0; index -= index & -index) {
+                count += live[index];
+            }
+            return count;
+        }
+
+        // index of the live base element with the given number of live elements before it, base.length if none
+        private int selectLive(int rank) {
+            int index = 0;
+            for (int step = Integer.highestOneBit(base.length); step > 0; step >>= 1) {
+                if (index + step <= base.length && live[index + step] <= rank) {
+                    index += step;
+                    rank -= live[index];
+                }
+            }
+            return index;
+        }
+
+        private void updateLive(int index, int delta) {
+            for (index++; index <= base.length; index += index & -index) {
+                live[index] += delta;
+            }
+        }
+
+        int countLive(int from, int to) {
+            return from >= to ? 0 : liveBefore(to) - liveBefore(from);
+        }
+
+        // least live base index not less than index, base.length if there is none
+        int nextLive(int index) {
+            return index >= base.length || !deleted(index) ? index : selectLive(liveBefore(index));
+        }
+
+        // greatest live base index not greater than index, -1 if there is none
+        int previousLive(int index) {
+            if (index < 0 || !deleted(index)) {
+                return index;
+            }
+            int rank = liveBefore(index);
+            return rank == 0 ? -1 : selectLive(rank - 1);
+        }
+
+        boolean contains(T item) {
+            int found = search(item);
+            return found >= 0 ? !deleted(found) : inserts.contains(item);
+        }
+
+        boolean add(T item) {
+            int found = search(item);
+            if (found >= 0) {
+                if (!deleted(found)) {
+                    return false;
+                }
+                // the revived slot holds the added element, as an equal one may differ from the deleted
+                base[found] = item;
+                deleted.clear(found);
+                updateLive(found, 1);
+                deletedCount--;
+            } else if (inserts.contains(item)) {
+                return false;
+            } else {
+                inserts.add(item);
+            }
+            size++;
+            modCount++;
+            mergeIfFull();
+            return true;
+        }
+
+        boolean remove(T item) {
+            int found = search(item);
+            if (found >= 0) {
+                if (deleted(found)) {
+                    return false;
+                }
+                if (deleted == null) {
+                    deleted = new BitSet(base.length);
+                    live = new int[base.length + 1];
+                    for (int i = 1; i <= base.length; i++) {
+                        live[i]++;
+                        int parent = i + (i & -i);
+                        if (parent <= base.length) {
+                            live[parent] += live[i];
+                        }
+                    }
+                }
+                deleted.set(found);
+                updateLive(found, -1);
+                deletedCount++;
+            } else if (inserts.contains(item)) {
+                inserts.remove(item);
+            } else {
+                return false;
+            }
+            size--;
+            modCount++;
+            mergeIfFull();
+            return true;
+        }
+
+        private void mergeIfFull() {
+            if (inserts.size() + deletedCount >= Math.max(MIN_DELTA_SIZE, base.length >> DELTA_SHIFT)) {
+                merge();
+            }
+        }
+
+        void merge() {
+            if (inserts.isEmpty() && deletedCount == 0) {
+                return;
+            }
+            Object[] added = inserts.toArray();
+            Object[] merged = new Object[size];
+            int i = nextLive(0);
+            int j = 0;
+            for (Object item : added) {
+                @SuppressWarnings("unchecked")
+                T key = (T) item;
+                while (i < base.length && compare(base(i), key) < 0) {
+                    merged[j++] = base[i];
+                    i = nextLive(i + 1);
+                }
+                merged[j++] = item;
+            }
+            for (; i < base.length; i = nextLive(i + 1)) {
+                merged[j++] = base[i];
+            }
+            base = merged;
+            inserts.clear();
+            deleted = null;
+            live = null;
+            deletedCount = 0;
+            modCount++;
+        }
+
+        void clear() {
+            base = new Object[0];
+            inserts.clear();
+            deleted = null;
+            live = null;
+            deletedCount = 0;
+            size = 0;
+            modCount++;
+        }
+
+        // greatest element less than (or equal to) item, item == null stands for +infinity
+        T lower(T item, boolean inclusive) {
+            int index = previousLive(item == null ? base.length - 1 : baseLower(item, inclusive));
+            return max(index < 0 ? null : base(index), inserts.lower(item, inclusive), 1);
+        }
+
+        // least element greater than (or equal to) item, item == null stands for -infinity
+        T higher(T item, boolean inclusive) {
+            int index = nextLive(item == null ? 0 : baseHigher(item, inclusive));
+            return max(index == base.length ? null : base(index), inserts.higher(item, inclusive), -1);
+        }
+
+        private T max(T a, T b, int sign) {
+            if (a == null || b == null) {
+                return a == null ? b : a;
+            }
+            return Integer.signum(compare(a, b)) == sign ? a : b;
+        }
+    }
+
+    private boolean tooLow(T item) {
+        if (!hasLow) {
+            return false;
+        }
+        int cmp = storage.compare(item, low);
+        return cmp < 0 || cmp == 0 && !lowInclusive;
+    }
+
+    private boolean tooHigh(T item) {
+        if (!hasHigh) {
+            return false;
+        }
+        int cmp = storage.compare(item, high);
+        return cmp > 0 || cmp == 0 && !highInclusive;
+    }
+
+    private boolean inRange(T item) {
+        return !tooLow(item) && !tooHigh(item);
+    }
+
+    private T checked(T item) {
+        return item == null || !inRange(item) ? null : item;
+    }
+
+    private T absLowest() {
+        return checked(hasLow ? storage.higher(low, lowInclusive) : storage.higher(null, true));
+    }
+
+    private T absHighest() {
+        return checked(hasHigh ? storage.lower(high, highInclusive) : storage.lower(null, true));
+    }
+
+    private T absLower(T item, boolean inclusive) {
+        return tooHigh(item) ? absHighest() : checked(storage.lower(item, inclusive));
+    }
+
+    private T absHigher(T item, boolean inclusive) {
+        return tooLow(item) ? absLowest() : checked(storage.higher(item, inclusive));
+    }
+
+    @Override
+    public T lower(T item) {
+        return descending ? absHigher(item, false) : absLower(item, false);
+    }
+
+    @Override
+    public T floor(T item) {
+        return descending ? absHigher(item, true) : absLower(item, true);
+    }
+
+    @Override
+    public T ceiling(T item) {
+        return descending ? absLower(item, true) : absHigher(item, true);
+    }
+
+    @Override
+    public T higher(T item) {
+        return descending ? absLower(item, false) : absHigher(item, false);
+    }
+
+    @Override
+    public T first() {
+        T item = descending ? absHighest() : absLowest();
+        if (item == null) {
+            throw new NoSuchElementException("ArraySet is empty");
+        }
+        return item;
+    }
+
+    @Override
+    public T last() {
+        T item = descending ? absLowest() : absHighest();
+        if (item == null) {
+            throw new NoSuchElementException("ArraySet is empty");
+        }
+        return item;
+    }
+
+    @Override
+    public T pollFirst() {
+        T item = descending ? absHighest() : absLowest();
+        if (item != null) {
+            storage.remove(item);
+        }
+        return item;
+    }
+
+    @Override
+    public T pollLast() {
+        T item = descending ? absLowest() : absHighest();
+        if (item != null) {
+            storage.remove(item);
+        }
+        return item;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object item) {
+        return item != null && inRange((T) item) && storage.contains((T) item);
+    }
+
+    @Override
+    public boolean add(T item) {
+        Objects.requireNonNull(item);
+        if (!inRange(item)) {
+            throw new IllegalArgumentException("Element out of range");
+        }
+        return storage.add(item);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object item) {
+        return item != null && inRange((T) item) && storage.remove((T) item);
+    }
+
+    @Override
+    public void clear() {
+        if (!hasLow && !hasHigh) {
+            storage.clear();
+        } else {
+            super.clear();
+        }
+    }
+
+    /**
+     * Merges pending changes into the sorted array.
+     */
+    public void compact() {
+        storage.merge();
+    }
+
+    private int fromIndex() {
+        return hasLow ? storage.baseHigher(low, lowInclusive) : 0;
+    }
+
+    private int toIndex() {
+        return hasHigh ? storage.baseLower(high, highInclusive) + 1 : storage.base.length;
+    }
+
+    @Override
+    public int size() {
+        if (!hasLow && !hasHigh) {
+            return storage.size;
+        }
+        int inserted = (hasHigh ? storage.inserts.rank(high, highInclusive) : storage.inserts.size())
+                - (hasLow ? storage.inserts.rank(low, !lowInclusive) : 0);
+        return storage.countLive(fromIndex(), toIndex()) + Math.max(0, inserted);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (descending ? absHighest() : absLowest()) == null;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new MergingIterator();
+    }
+
+    // two-way merge of the live array elements and the inserts in iteration order; after a write
+    // both cursors are positioned again right after the last returned element
+    private class MergingIterator implements Iterator<T> {
+        private int modCount;
+        private Object[] base;
+        private int index;
+        private T insert;
+        private T next;
+        private boolean ready;
+        private T last;
+        private boolean removable;
+
+        MergingIterator() {
+            seek();
+        }
+
+        // positions both cursors at the first element after last, or at the start of the range
+        private void seek() {
+            modCount = storage.modCount;
+            base = storage.base;
+            if (last != null) {
+                index = descending ? storage.baseLower(last, false) : storage.baseHigher(last, false);
+                insert = descending ? storage.inserts.lower(last, false) : storage.inserts.higher(last, false);
+            } else if (descending) {
+                index = toIndex() - 1;
+                insert = storage.inserts.lower(hasHigh ? high : null, !hasHigh || highInclusive);
+            } else {
+                index = fromIndex();
+                insert = storage.inserts.higher(hasLow ? low : null, !hasLow || lowInclusive);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T advance() {
+            if (modCount != storage.modCount) {
+                seek();
+            }
+            index = descending ? storage.previousLive(index) : storage.nextLive(index);
+            T fromBase = index < 0 || index >= base.length ? null : (T) base[index];
+            if (insert != null && (fromBase == null || before(insert, fromBase))) {
+                T result = insert;
+                insert = descending ? storage.inserts.lower(insert, false) : storage.inserts.higher(insert, false);
+                return checked(result);
+            }
+            index += descending ? -1 : 1;
+            return checked(fromBase);
+        }
+
+        private boolean before(T a, T b) {
+            int cmp = storage.compare(a, b);
+            return descending ? cmp > 0 : cmp < 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // an element found before a write may be gone or no longer the next one
+            if (!ready || modCount != storage.modCount) {
+                next = advance();
+                ready = true;
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            last = next;
+            removable = true;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!removable) {
+                throw new IllegalStateException();
+            }
+            storage.remove(last);
+            removable = false;
+        }
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new MutableArraySet<>(storage, low, hasLow, lowInclusive, high, hasHigh, highInclusive, !descending);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return descending ? Collections.reverseOrder(storage.comparator) : storage.comparator;
+    }
+
+    // bounds are given in ascending order and narrowed to the bounds of this set
+    private NavigableSet<T> range(T newLow, boolean newHasLow, boolean newLowInclusive,
+                                  T newHigh, boolean newHasHigh, boolean newHighInclusive) {
+        if (newHasLow && newHasHigh && storage.compare(newLow, newHigh) > 0) {
+            throw new IllegalArgumentException("Left border more than right border");
+        }
+        if (!newHasLow || hasLow && tooLow(newLow)) {
+            newLow = low;
+            newHasLow = hasLow;
+            newLowInclusive = lowInclusive;
+        }
+        if (!newHasHigh || hasHigh && tooHigh(newHigh)) {
+            newHigh = high;
+            newHasHigh = hasHigh;
+            newHighInclusive = highInclusive;
+        }
+        return new MutableArraySet<>(storage, newLow, newHasLow, newLowInclusive,
+                newHigh, newHasHigh, newHighInclusive, descending);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return descending
+                ? range(toElement, true, toInclusive, fromElement, true, fromInclusive)
+                : range(fromElement, true, fromInclusive, toElement, true, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return descending
+                ? range(toElement, true, inclusive, null, false, false)
+                : range(null, false, false, toElement, true, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return descending
+                ? range(null, false, false, fromElement, true, inclusive)
+                : range(fromElement, true, inclusive, null, false, false);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+}
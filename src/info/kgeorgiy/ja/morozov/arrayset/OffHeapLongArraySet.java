@@ -0,0 +1,239 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Set of long keys stored outside the heap, in direct or memory-mapped buffers of up to 1 GiB each.
+ * A file written by {@link #save} is mapped read-only by {@link #map}, so several processes
+ * share one copy of the keys through the page cache.
+ */
+public class OffHeapLongArraySet extends PrimitiveArraySet<Long, OffHeapLongArraySet> {
+    private static final int MAGIC = 0x4c534554;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int CHUNK_SHIFT = 27;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final LongBuffer[] chunks;
+
+    private OffHeapLongArraySet(LongBuffer[] chunks, int from, int to, boolean reversed) {
+        super(from, to, reversed);
+        this.chunks = chunks;
+    }
+
+    public static OffHeapLongArraySet of(long... data) {
+        long[] sorted = LongArraySet.of(data).toLongArray();
+        LongBuffer[] chunks = new LongBuffer[chunkCount(sorted.length)];
+        for (int i = 0; i < chunks.length; i++) {
+            int from = i << CHUNK_SHIFT;
+            int length = Math.min(sorted.length - from, CHUNK_MASK + 1);
+            chunks[i] = ByteBuffer.allocateDirect(length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            chunks[i].put(sorted, from, length);
+        }
+        return new OffHeapLongArraySet(chunks, 0, sorted.length, false);
+    }
+
+    public static OffHeapLongArraySet map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long count = header.getInt() != MAGIC || header.getInt() != VERSION ? -1 : header.getLong();
+            if (count < 0 || count > Integer.MAX_VALUE || channel.size() != HEADER_SIZE + count * Long.BYTES) {
+                throw new IOException("Not a set file: " + file);
+            }
+            LongBuffer[] chunks = new LongBuffer[chunkCount((int) count)];
+            for (int i = 0; i < chunks.length; i++) {
+                long from = (long) i << CHUNK_SHIFT;
+                long length = Math.min(count - from, CHUNK_MASK + 1);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + from * Long.BYTES,
+                        length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            // mappings stay valid after the channel is closed
+            return new OffHeapLongArraySet(chunks, 0, (int) count, false);
+        }
+    }
+
+    /**
+     * Writes the elements of this set in ascending order to a file that {@link #map} can load.
+     */
+    public void save(Path file) throws IOException {
+        save(file, IntStream.range(from, to).mapToLong(this::get));
+    }
+
+    /**
+     * Writes strictly increasing keys to a file that {@link #map} can load, buffer by buffer,
+     * so the keys never have to fit in memory.
+     *
+     * @throws IllegalArgumentException if the keys are not strictly increasing or there are too many of them
+     */
+    public static void save(Path file, LongStream keys) throws IOException {
+        save(file, keys.iterator());
+    }
+
+    public static void save(Path file, PrimitiveIterator.OfLong keys) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                // the count is written once all keys are known
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+                long count = 0;
+                long previous = 0;
+                while (keys.hasNext()) {
+                    long key = keys.nextLong();
+                    if (count > 0 && key <= previous) {
+                        throw new IllegalArgumentException("Keys are not strictly increasing: " + previous
+                                + " is followed by " + key);
+                    }
+                    if (count == Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("More than " + Integer.MAX_VALUE + " keys");
+                    }
+                    if (!buffer.hasRemaining()) {
+                        writeFully(channel, buffer.flip());
+                        buffer.clear();
+                    }
+                    buffer.putLong(key);
+                    previous = key;
+                    count++;
+                }
+                writeFully(channel, buffer.flip());
+                buffer.clear().putLong(count).flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, HEADER_SIZE - Long.BYTES + buffer.position());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int chunkCount(int size) {
+        return (int) (((long) size + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    private long get(int index) {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    // same contract as Arrays.binarySearch over [from, to)
+    private int searchLong(long item) {
+        int l = from;
+        int r = to - 1;
+        while (l <= r) {
+            int mid = (l + r) >>> 1;
+            long value = get(mid);
+            if (value < item) {
+                l = mid + 1;
+            } else if (value > item) {
+                r = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(l + 1);
+    }
+
+    @Override
+    protected int search(Long item) {
+        return searchLong(item);
+    }
+
+    @Override
+    protected Long element(int index) {
+        return get(index);
+    }
+
+    @Override
+    protected int compareKeys(Long a, Long b) {
+        return Long.compare(a, b);
+    }
+
+    @Override
+    protected OffHeapLongArraySet view(int from, int to, boolean reversed) {
+        return new OffHeapLongArraySet(chunks, from, to, reversed);
+    }
+
+    public long getLong(int position) {
+        return get(index(position));
+    }
+
+    // positions in iteration order, -1 if there is no such element
+    public int lowerIndex(long item) {
+        return lowerIndex(searchLong(item), false);
+    }
+
+    public int floorIndex(long item) {
+        return lowerIndex(searchLong(item), true);
+    }
+
+    public int ceilingIndex(long item) {
+        return higherIndex(searchLong(item), true);
+    }
+
+    public int higherIndex(long item) {
+        return higherIndex(searchLong(item), false);
+    }
+
+    public boolean containsLong(long item) {
+        return searchLong(item) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return item instanceof Long value && containsLong(value);
+    }
+
+    public long firstLong() {
+        return get(firstIndex());
+    }
+
+    public long lastLong() {
+        return get(lastIndex());
+    }
+
+    public OffHeapLongArraySet subSet(long fromElement, boolean fromInclusive, long toElement, boolean toInclusive) {
+        return range(searchLong(fromElement), fromInclusive, searchLong(toElement), toInclusive,
+                Long.compare(fromElement, toElement));
+    }
+
+    public OffHeapLongArraySet headSet(long toElement, boolean inclusive) {
+        return head(searchLong(toElement), inclusive);
+    }
+
+    public OffHeapLongArraySet tailSet(long fromElement, boolean inclusive) {
+        return tail(searchLong(fromElement), inclusive);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongCursor();
+    }
+
+    private class LongCursor extends Cursor implements PrimitiveIterator.OfLong {
+        @Override
+        public long nextLong() {
+            return get(nextIndex());
+        }
+    }
+}
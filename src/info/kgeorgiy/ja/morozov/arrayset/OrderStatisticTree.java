@@ -0,0 +1,198 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.Comparator;
+
+// treap of distinct elements with subtree sizes: navigation and the number of elements below a key in O(log n)
+class OrderStatisticTree<T> {
+    private final Comparator<? super T> comparator;
+    private Node<T> root;
+    private int seed = 0x2545F491;
+
+    OrderStatisticTree(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    private static final class Node<T> {
+        private final T key;
+        private final int priority;
+        private Node<T> left;
+        private Node<T> right;
+        private int size = 1;
+
+        Node(T key, int priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T a, T b) {
+        if (comparator == null) {
+            return ((Comparable<T>) a).compareTo(b);
+        }
+        return comparator.compare(a, b);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <T> Node<T> update(Node<T> node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    boolean contains(T item) {
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = compare(item, node.key);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    // item must be absent
+    void add(T item) {
+        root = insert(root, new Node<>(item, nextPriority()));
+    }
+
+    // item must be present
+    void remove(T item) {
+        root = delete(root, item);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> item) {
+        if (node == null) {
+            return item;
+        }
+        if (compare(item.key, node.key) < 0) {
+            node.left = insert(node.left, item);
+            if (node.left.priority > node.priority) {
+                Node<T> left = node.left;
+                node.left = left.right;
+                left.right = update(node);
+                node = left;
+            }
+        } else {
+            node.right = insert(node.right, item);
+            if (node.right.priority > node.priority) {
+                Node<T> right = node.right;
+                node.right = right.left;
+                right.left = update(node);
+                node = right;
+            }
+        }
+        return update(node);
+    }
+
+    private Node<T> delete(Node<T> node, T item) {
+        int cmp = compare(item, node.key);
+        if (cmp == 0) {
+            return join(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, item);
+        } else {
+            node.right = delete(node.right, item);
+        }
+        return update(node);
+    }
+
+    private Node<T> join(Node<T> left, Node<T> right) {
+        if (left == null || right == null) {
+            return left == null ? right : left;
+        }
+        if (left.priority > right.priority) {
+            left.right = join(left.right, right);
+            return update(left);
+        }
+        right.left = join(left, right.left);
+        return update(right);
+    }
+
+    // number of elements less than (or equal to) item
+    int rank(T item, boolean inclusive) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = compare(node.key, item);
+            if (cmp < 0 || cmp == 0 && inclusive) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    // greatest element less than (or equal to) item, item == null stands for +infinity
+    T lower(T item, boolean inclusive) {
+        T result = null;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = item == null ? -1 : compare(node.key, item);
+            if (cmp < 0 || cmp == 0 && inclusive) {
+                result = node.key;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return result;
+    }
+
+    // least element greater than (or equal to) item, item == null stands for -infinity
+    T higher(T item, boolean inclusive) {
+        T result = null;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = item == null ? 1 : compare(node.key, item);
+            if (cmp > 0 || cmp == 0 && inclusive) {
+                result = node.key;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+    // elements in ascending order
+    Object[] toArray() {
+        Object[] result = new Object[size()];
+        fill(root, result, 0);
+        return result;
+    }
+
+    private static int fill(Node<?> node, Object[] result, int position) {
+        if (node == null) {
+            return position;
+        }
+        position = fill(node.left, result, position);
+        result[position++] = node.key;
+        return fill(node.right, result, position);
+    }
+}
@@ -0,0 +1,230 @@
+package info.kgeorgiy.ja.morozov.arrayset;
+
+import java.util.*;
+
+// common view logic of sets over unboxed sorted storage (primitive arrays, off-heap and mapped buffers):
+// a view is a range [from, to) of the ascending storage, positions are counted in view order
+abstract class PrimitiveArraySet<T, S extends PrimitiveArraySet<T, S>> extends AbstractSet<T>
+        implements NavigableSet<T> {
+    protected final int from;
+    protected final int to;
+    protected final boolean reversed;
+
+    protected PrimitiveArraySet(int from, int to, boolean reversed) {
+        this.from = from;
+        this.to = to;
+        this.reversed = reversed;
+    }
+
+    // Arrays.binarySearch result over [from, to) of the backing array
+    protected abstract int search(T item);
+
+    protected abstract T element(int index);
+
+    protected abstract int compareKeys(T a, T b);
+
+    protected abstract S view(int from, int to, boolean reversed);
+
+    // search result over the whole storage restricted to [from, to)
+    protected final int restrict(int found) {
+        int index = found < 0 ? -(found + 1) : found;
+        if (index < from) {
+            return -from - 1;
+        }
+        if (index > to || index == to && found >= 0) {
+            return -to - 1;
+        }
+        return found;
+    }
+
+    protected final int index(int position) {
+        Objects.checkIndex(position, size());
+        return reversed ? to - 1 - position : from + position;
+    }
+
+    private static int ascendingLower(int found, boolean inclusive) {
+        if (found < 0) {
+            return -(found + 1) - 1;
+        }
+        return inclusive ? found : found - 1;
+    }
+
+    private static int ascendingHigher(int found, boolean inclusive) {
+        if (found < 0) {
+            return -(found + 1);
+        }
+        return inclusive ? found : found + 1;
+    }
+
+    // position of the greatest element less than (or equal to) the searched one, -1 if there is none
+    protected final int lowerPosition(int found, boolean inclusive) {
+        return reversed ? to - 1 - ascendingHigher(found, inclusive) : ascendingLower(found, inclusive) - from;
+    }
+
+    // position of the least element greater than (or equal to) the searched one, size() if there is none
+    protected final int higherPosition(int found, boolean inclusive) {
+        return reversed ? to - 1 - ascendingLower(found, inclusive) : ascendingHigher(found, inclusive) - from;
+    }
+
+    // the same positions for the primitive accessors, -1 if there is no such element
+    protected final int lowerIndex(int found, boolean inclusive) {
+        return lowerPosition(found, inclusive);
+    }
+
+    protected final int higherIndex(int found, boolean inclusive) {
+        int position = higherPosition(found, inclusive);
+        return position == size() ? -1 : position;
+    }
+
+    protected final int firstIndex() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("ArraySet is empty");
+        }
+        return index(0);
+    }
+
+    protected final int lastIndex() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("ArraySet is empty");
+        }
+        return index(size() - 1);
+    }
+
+    // iteration order over the storage, subclasses read the element at nextIndex()
+    protected abstract class Cursor {
+        private int position;
+
+        public boolean hasNext() {
+            return position < size();
+        }
+
+        protected int nextIndex() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return index(position++);
+        }
+    }
+
+    private T elementOrNull(int position) {
+        return position < 0 || position >= size() ? null : element(index(position));
+    }
+
+    private S positions(int l, int r) {
+        if (l > r) {
+            return view(from, from, reversed);
+        }
+        return reversed ? view(to - 1 - r, to - l, true) : view(from + l, from + r + 1, false);
+    }
+
+    protected final S range(int fromFound, boolean fromInclusive, int toFound, boolean toInclusive, int order) {
+        if ((reversed ? -order : order) > 0) {
+            throw new IllegalArgumentException("Left border more than right border");
+        }
+        return positions(higherPosition(fromFound, fromInclusive), lowerPosition(toFound, toInclusive));
+    }
+
+    protected final S head(int toFound, boolean inclusive) {
+        return positions(0, lowerPosition(toFound, inclusive));
+    }
+
+    protected final S tail(int fromFound, boolean inclusive) {
+        return positions(higherPosition(fromFound, inclusive), size() - 1);
+    }
+
+    @Override
+    public T lower(T item) {
+        return elementOrNull(lowerPosition(search(item), false));
+    }
+
+    @Override
+    public T floor(T item) {
+        return elementOrNull(lowerPosition(search(item), true));
+    }
+
+    @Override
+    public T ceiling(T item) {
+        return elementOrNull(higherPosition(search(item), true));
+    }
+
+    @Override
+    public T higher(T item) {
+        return elementOrNull(higherPosition(search(item), false));
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public S descendingSet() {
+        return view(from, to, !reversed);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public S subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return range(search(fromElement), fromInclusive, search(toElement), toInclusive,
+                compareKeys(fromElement, toElement));
+    }
+
+    @Override
+    public S headSet(T toElement, boolean inclusive) {
+        return head(search(toElement), inclusive);
+    }
+
+    @Override
+    public S tailSet(T fromElement, boolean inclusive) {
+        return tail(search(fromElement), inclusive);
+    }
+
+    @Override
+    public S subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public S headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public S tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return reversed ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public T first() {
+        return element(firstIndex());
+    }
+
+    @Override
+    public T last() {
+        return element(lastIndex());
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+}
@@ -0,0 +1,227 @@
+package info.kgeorgiy.ja.morozov.student;
+
+import info.kgeorgiy.java.advanced.student.AdvancedQuery;
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link AdvancedQuery} over a fixed collection of students. Every answer for that collection is computed
+ * once, when the database is built, and then served from hash indexes and prepared sorted lists:
+ * queries by key take O(1) plus the size of the answer, queries by ids take O(ids.length).
+ * Queries about any other collection are answered by {@link StudentDB}.
+ * The collection must not be changed after the database is built.
+ */
+public class IndexedStudentDB implements AdvancedQuery {
+    private final StudentDB db = new StudentDB();
+    private final Collection<Student> students;
+
+    private final List<Student> byId;
+    private final List<Student> byName;
+    // null when ids repeat: queries by ids then fail in StudentDB, like they do there for any such collection
+    private final Map<Integer, Student> studentById;
+    private final Map<String, List<Student>> byFirstName;
+    private final Map<String, List<Student>> byLastName;
+    private final Map<GroupName, List<Student>> byGroup;
+    private final Map<GroupName, Map<String, String>> namesByGroup;
+    private final List<Group> groupsByName;
+    private final List<Group> groupsById;
+    private final GroupName largestGroup;
+    private final GroupName largestGroupFirstName;
+    private final String mostPopularName;
+    private final String maxStudentFirstName;
+    // answers of the List queries, kept only when the students are given as a list
+    private final List<String> firstNames;
+    private final List<String> lastNames;
+    private final List<GroupName> groups;
+    private final List<String> fullNames;
+    private final Set<String> distinctFirstNames;
+
+    public IndexedStudentDB(final Collection<Student> students) {
+        this.students = students;
+        byId = db.sortStudentsById(students);
+        byName = db.sortStudentsByName(students);
+        studentById = indexById(byId);
+        byFirstName = groupByName(Student::getFirstName);
+        byLastName = groupByName(Student::getLastName);
+
+        Map<GroupName, List<Student>> groupIndex = new EnumMap<>(GroupName.class);
+        Map<GroupName, Map<String, String>> namesIndex = new EnumMap<>(GroupName.class);
+        for (Map.Entry<GroupName, List<Student>> group : groupByName(Student::getGroup).entrySet()) {
+            groupIndex.put(group.getKey(), group.getValue());
+            namesIndex.put(group.getKey(),
+                    Collections.unmodifiableMap(db.findStudentNamesByGroup(group.getValue(), group.getKey())));
+        }
+        byGroup = Collections.unmodifiableMap(groupIndex);
+        namesByGroup = Collections.unmodifiableMap(namesIndex);
+
+        groupsByName = List.copyOf(db.getGroupsByName(students));
+        groupsById = List.copyOf(db.getGroupsById(students));
+        largestGroup = db.getLargestGroup(students);
+        largestGroupFirstName = db.getLargestGroupFirstName(students);
+        mostPopularName = db.getMostPopularName(students);
+
+        if (students instanceof List<Student> list) {
+            firstNames = db.getFirstNames(list);
+            lastNames = db.getLastNames(list);
+            groups = db.getGroups(list);
+            fullNames = db.getFullNames(list);
+            distinctFirstNames = Collections.unmodifiableSet(db.getDistinctFirstNames(list));
+            maxStudentFirstName = db.getMaxStudentFirstName(list);
+        } else {
+            firstNames = null;
+            lastNames = null;
+            groups = null;
+            fullNames = null;
+            distinctFirstNames = null;
+            maxStudentFirstName = null;
+        }
+    }
+
+    // students sorted by name, grouped by key; every group keeps that order
+    private <K> Map<K, List<Student>> groupByName(final Function<Student, K> key) {
+        return byName.stream().collect(Collectors.collectingAndThen(
+                Collectors.groupingBy(key, Collectors.toUnmodifiableList()),
+                Collections::unmodifiableMap));
+    }
+
+    private boolean indexed(final Collection<Student> students) {
+        return students == this.students;
+    }
+
+    private boolean indexedList(final List<Student> students) {
+        return students == this.students && firstNames != null;
+    }
+
+    @Override
+    public List<Group> getGroupsByName(final Collection<Student> students) {
+        return indexed(students) ? groupsByName : db.getGroupsByName(students);
+    }
+
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return indexed(students) ? groupsById : db.getGroupsById(students);
+    }
+
+    @Override
+    public GroupName getLargestGroup(final Collection<Student> students) {
+        return indexed(students) ? largestGroup : db.getLargestGroup(students);
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(final Collection<Student> students) {
+        return indexed(students) ? largestGroupFirstName : db.getLargestGroupFirstName(students);
+    }
+
+    @Override
+    public List<String> getFirstNames(final List<Student> students) {
+        return indexedList(students) ? firstNames : db.getFirstNames(students);
+    }
+
+    @Override
+    public List<String> getLastNames(final List<Student> students) {
+        return indexedList(students) ? lastNames : db.getLastNames(students);
+    }
+
+    @Override
+    public List<GroupName> getGroups(final List<Student> students) {
+        return indexedList(students) ? groups : db.getGroups(students);
+    }
+
+    @Override
+    public List<String> getFullNames(final List<Student> students) {
+        return indexedList(students) ? fullNames : db.getFullNames(students);
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(final List<Student> students) {
+        return indexedList(students) ? distinctFirstNames : db.getDistinctFirstNames(students);
+    }
+
+    @Override
+    public String getMaxStudentFirstName(final List<Student> students) {
+        return indexedList(students) ? maxStudentFirstName : db.getMaxStudentFirstName(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsById(final Collection<Student> students) {
+        return indexed(students) ? byId : db.sortStudentsById(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(final Collection<Student> students) {
+        return indexed(students) ? byName : db.sortStudentsByName(students);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name) {
+        return indexed(students) ? byFirstName.getOrDefault(name, List.of())
+                : db.findStudentsByFirstName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(final Collection<Student> students, final String name) {
+        return indexed(students) ? byLastName.getOrDefault(name, List.of())
+                : db.findStudentsByLastName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group) {
+        return indexed(students) ? byGroup.getOrDefault(group, List.of()) : db.findStudentsByGroup(students, group);
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(final Collection<Student> students, final GroupName group) {
+        return indexed(students) ? namesByGroup.getOrDefault(group, Map.of())
+                : db.findStudentNamesByGroup(students, group);
+    }
+
+    @Override
+    public String getMostPopularName(final Collection<Student> students) {
+        return indexed(students) ? mostPopularName : db.getMostPopularName(students);
+    }
+
+    private static Map<Integer, Student> indexById(final List<Student> students) {
+        final Map<Integer, Student> index = new HashMap<>();
+        for (final Student student : students) {
+            if (index.putIfAbsent(student.getId(), student) != null) {
+                return null;
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    private <T> List<T> getByIds(final Collection<Student> students, final int[] ids,
+                                 final Function<Student, T> function,
+                                 final Function<Collection<Student>, List<T>> fallback) {
+        if (!indexed(students) || studentById == null) {
+            return fallback.apply(students);
+        }
+        return Arrays.stream(ids).mapToObj(studentById::get).map(function).toList();
+    }
+
+    @Override
+    public List<String> getFirstNames(final Collection<Student> students, final int[] ids) {
+        return getByIds(students, ids, Student::getFirstName, s -> db.getFirstNames(s, ids));
+    }
+
+    @Override
+    public List<String> getLastNames(final Collection<Student> students, final int[] ids) {
+        return getByIds(students, ids, Student::getLastName, s -> db.getLastNames(s, ids));
+    }
+
+    @Override
+    public List<GroupName> getGroups(final Collection<Student> students, final int[] ids) {
+        return getByIds(students, ids, Student::getGroup, s -> db.getGroups(s, ids));
+    }
+
+    @Override
+    public List<String> getFullNames(final Collection<Student> students, final int[] ids) {
+        return getByIds(students, ids, student -> student.getFirstName() + " " + student.getLastName(),
+                s -> db.getFullNames(s, ids));
+    }
+}
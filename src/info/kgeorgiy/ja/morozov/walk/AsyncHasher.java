@@ -0,0 +1,135 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes many files at once with {@link AsynchronousFileChannel}. Every file in flight owns
+ * one buffer from a fixed pool, so the pool size is both the read queue depth and the memory cap.
+ * Where the channel has no native asynchronous I/O (Linux), every read is a blocking read on a thread
+ * of the executor the channel is opened with, so reads get a pool of queue depth threads of their own,
+ * and digests are updated on a separate pool that then issues the next read of the file.
+ */
+class AsyncHasher implements Closeable {
+    private final HashAlgorithm algorithm;
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService digestExecutor;
+    private final AtomicInteger reads = new AtomicInteger();
+    private final int queueDepth;
+
+    AsyncHasher(HashAlgorithm algorithm, int queueDepth, int bufferSize, int threads) {
+        this.algorithm = algorithm;
+        this.queueDepth = queueDepth;
+        this.buffers = new ArrayBlockingQueue<>(queueDepth);
+        for (int i = 0; i < queueDepth; i++) {
+            buffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        this.ioExecutor = Executors.newFixedThreadPool(queueDepth);
+        this.digestExecutor = Executors.newFixedThreadPool(threads);
+    }
+
+    public CompletableFuture<byte[]> hash(Path file) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for buffer", e);
+        }
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(file, Set.of(StandardOpenOption.READ), ioExecutor);
+        } catch (IOException | RuntimeException e) {
+            buffers.add(buffer);
+            throw e;
+        }
+        Reader reader = new Reader(channel, buffer, algorithm.newDigest());
+        reader.read();
+        return reader.result;
+    }
+
+    public int readsInFlight() {
+        return reads.get();
+    }
+
+    public int openFiles() {
+        return queueDepth - buffers.size();
+    }
+
+    @Override
+    public void close() {
+        ioExecutor.shutdownNow();
+        digestExecutor.shutdownNow();
+    }
+
+    private class Reader implements CompletionHandler<Integer, Void> {
+        private final AsynchronousFileChannel channel;
+        private final ByteBuffer buffer;
+        private final MessageDigest digest;
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private long position;
+
+        Reader(AsynchronousFileChannel channel, ByteBuffer buffer, MessageDigest digest) {
+            this.channel = channel;
+            this.buffer = buffer.clear();
+            this.digest = digest;
+        }
+
+        void read() {
+            reads.incrementAndGet();
+            try {
+                channel.read(buffer, position, null, this);
+            } catch (RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            reads.decrementAndGet();
+            if (read < 0) {
+                release();
+                result.complete(digest.digest());
+                return;
+            }
+            try {
+                digestExecutor.execute(() -> {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                    position += read;
+                    read();
+                });
+            } catch (RejectedExecutionException e) {
+                release();
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void failed(Throwable e, Void attachment) {
+            reads.decrementAndGet();
+            release();
+            result.completeExceptionally(e);
+        }
+
+        private void release() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // result is already known
+            }
+            buffers.add(buffer);
+        }
+    }
+}
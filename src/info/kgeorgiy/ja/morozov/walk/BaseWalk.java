@@ -7,40 +7,59 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class BaseWalk {
+    private static final int PENDING_PER_THREAD = 16;
+    private static final int ASYNC_BUFFER_SIZE = 256 * 1024;
+
     public void run(String[] args, TypeWalk typeWalk) {
         if (args == null) {
             printErrorMessage("Args in null");
             return ;
         }
-        if (args.length != 2) {
-            printErrorMessage("Expected 2 arguments - actual " + args.length);
+        WalkOptions options = new WalkOptions();
+        int first;
+        try {
+            first = options.parse(args);
+            if (typeWalk == TypeWalk.DUPLICATES) {
+                options.checkDuplicates();
+            }
+        } catch (IllegalArgumentException e) {
+            printErrorMessage("Wrong options: " + e.getMessage());
+            return ;
+        }
+        if (args.length - first != 2) {
+            printErrorMessage("Expected 2 arguments - actual " + (args.length - first));
             return ;
         }
-        if (args[0] == null || args[1] == null) {
+        if (args[first] == null || args[first + 1] == null) {
             printErrorMessage("Expected not null args");
             return ;
         }
         Path inputFilePath, outputFilePath;
         try {
-            inputFilePath = Paths.get(args[0]);
+            inputFilePath = Paths.get(args[first]);
         } catch (InvalidPathException e) {
             printErrorMessage("Input file name is wrong: " + e.getMessage());
             return ;
         }
         try {
-            outputFilePath = Paths.get(args[1]);
+            outputFilePath = Paths.get(args[first + 1]);
         } catch (InvalidPathException e) {
             printErrorMessage("Output file name is wrong: " + e.getMessage());
             return ;
         }
-        walk(inputFilePath, outputFilePath, typeWalk);
+        walk(inputFilePath, outputFilePath, typeWalk, options);
     }
 
-    private void walk(Path inputFilePath, Path outputFilePath, TypeWalk typeWalk) {
+    private void walk(Path inputFilePath, Path outputFilePath, TypeWalk typeWalk, WalkOptions options) {
         try (BufferedReader bufferedReader = Files.newBufferedReader(inputFilePath)) {
             try {
                 if (outputFilePath.getParent() != null && !Files.exists(outputFilePath.getParent())) {
@@ -49,33 +68,251 @@ public class BaseWalk {
             } catch (IOException ignored) {
                 //ignored
             }
-            try (BufferedWriter bufferedWriter = Files.newBufferedWriter(outputFilePath)) {
-                MessageDigest digest = MessageDigest.getInstance("SHA-256");
-                HashRecursiveFileVisitor visitor = new HashRecursiveFileVisitor(bufferedWriter, typeWalk, digest);
-                String fileOrDirName;
-                while ((fileOrDirName = bufferedReader.readLine()) != null) {
-                    try {
-                        visitor.visitFile(fileOrDirName);
-                    } catch (IOException e) {
-                        printErrorMessage("Writing error: error while writing file" + e.getMessage());
-                    }
+            if (typeWalk == TypeWalk.DUPLICATES) {
+                findDuplicates(bufferedReader, outputFilePath, options);
+            } else {
+                Path statsFile;
+                try {
+                    statsFile = options.getStatsFile() == null ? null : Paths.get(options.getStatsFile());
+                } catch (InvalidPathException e) {
+                    printErrorMessage("Stats file name is wrong: " + e.getMessage());
+                    return ;
+                }
+                WalkStats stats = options.isStats() ? new WalkStats() : null;
+                if (stats != null && options.getProgressSeconds() > 0) {
+                    stats.startReporting(options.getProgressSeconds(), statsFile);
+                }
+                hashFiles(bufferedReader, outputFilePath, typeWalk, options, stats);
+                if (stats != null) {
+                    stats.finish(statsFile);
                 }
-            } catch (IOException e) {
-                printErrorMessage("Output error: cant open output file" + e.getMessage());
-            } catch (NoSuchAlgorithmException e) {
-                throw new AssertionError("Not support sha-256 algorithm", e);
             }
         } catch (IOException e) {
             printErrorMessage("Input error: cant open input file" + e.getMessage());
         }
     }
 
+    private void hashFiles(BufferedReader bufferedReader, Path outputFilePath, TypeWalk typeWalk, WalkOptions options,
+                           WalkStats stats) {
+        WalkCheckpoint checkpoint;
+        try {
+            checkpoint = openCheckpoint(options);
+        } catch (IOException | InvalidPathException e) {
+            printErrorMessage("Checkpoint error: cant read checkpoint " + e.getMessage());
+            return ;
+        }
+        HashCache cache = openCache(options);
+        AsyncHasher asyncHasher = options.getQueueDepth() > 0
+                ? new AsyncHasher(options.getAlgorithm(), options.getQueueDepth(), ASYNC_BUFFER_SIZE, options.getThreads())
+                : null;
+        ExecutorService executor = null;
+        if (asyncHasher == null && options.getVirtualOpenFiles() > 0) {
+            executor = newVirtualThreadPerTaskExecutor(options.getVirtualOpenFiles());
+        } else if (asyncHasher == null && options.getThreads() > 1) {
+            executor = new ThreadPoolExecutor(options.getThreads(), options.getThreads(),
+                    0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        }
+        ForkJoinPool listPool = options.getListThreads() > 0 ? new ForkJoinPool(options.getListThreads()) : null;
+        try (BufferedWriter bufferedWriter = checkpoint == null
+                ? Files.newBufferedWriter(outputFilePath)
+                : checkpoint.openOutput(outputFilePath);
+             ChunkWriter chunkWriter = openChunkWriter(options, checkpoint)) {
+            Supplier<FileHasher> hasherFactory = options.isTree()
+                    ? () -> new TreeHasher(options.getAlgorithm(), options.getTreeChunkSize(), chunkWriter,
+                            ForkJoinPool.commonPool())
+                    : () -> new ChannelHasher(options.getAlgorithm().newDigest());
+            LinkDeduplicator links = options.isDedupLinks() ? new LinkDeduplicator() : null;
+            DirectoryLister lister = listPool == null ? null : new DirectoryLister(listPool);
+            try (HashRecursiveFileVisitor visitor = newVisitor(bufferedWriter, typeWalk, options, lister, hasherFactory,
+                    asyncHasher, executor, cache, links, stats)) {
+                processInput(bufferedReader, visitor, chunkWriter, checkpoint, stats);
+            }
+            if (links != null) {
+                printErrorMessage(String.format("Hard links: %d files reused, %d bytes not rehashed",
+                        links.getReusedFiles(), links.getSavedBytes()));
+            }
+            if (cache != null) {
+                try {
+                    cache.save();
+                } catch (IOException e) {
+                    printErrorMessage("Cache error: cant write cache file " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            printErrorMessage("Output error: cant open output file" + e.getMessage());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (asyncHasher != null) {
+                asyncHasher.close();
+            }
+            if (listPool != null) {
+                listPool.shutdownNow();
+            }
+        }
+    }
+
+    private HashRecursiveFileVisitor newVisitor(BufferedWriter bufferedWriter, TypeWalk typeWalk, WalkOptions options,
+                                                DirectoryLister lister, Supplier<FileHasher> hasherFactory,
+                                                AsyncHasher asyncHasher, ExecutorService executor,
+                                                HashCache cache, LinkDeduplicator links, WalkStats stats) {
+        int hashLength = options.getAlgorithm().newDigest().getDigestLength();
+        if (asyncHasher != null) {
+            if (stats != null) {
+                stats.gauge("reads in flight", asyncHasher::readsInFlight);
+                stats.gauge("open files", asyncHasher::openFiles);
+            }
+            return new HashRecursiveFileVisitor(bufferedWriter, typeWalk, lister, hashLength, asyncHasher,
+                    cache, stats, options.getQueueDepth() * 2);
+        } else if (executor != null) {
+            int workers = options.getVirtualOpenFiles() > 0 ? options.getVirtualOpenFiles() : options.getThreads();
+            // a thread pool already bounds open files by its size, only virtual threads need the semaphore
+            int maxOpenFiles = executor instanceof ThreadPoolExecutor ? 0 : workers;
+            HashRecursiveFileVisitor visitor = new HashRecursiveFileVisitor(bufferedWriter, typeWalk, lister,
+                    hashLength, hasherFactory, cache, links, stats, executor, maxOpenFiles,
+                    workers * PENDING_PER_THREAD);
+            if (stats != null) {
+                stats.gauge("busy hashers", visitor::busyHashers);
+                if (executor instanceof ThreadPoolExecutor pool) {
+                    stats.gauge("hash queue", () -> pool.getQueue().size());
+                }
+            }
+            return visitor;
+        } else {
+            return new HashRecursiveFileVisitor(bufferedWriter, typeWalk, lister, hashLength, hasherFactory,
+                    cache, links, stats);
+        }
+    }
+
+    // virtual threads are final since Java 21, older runtimes fall back to a fixed pool of openFiles threads
+    private static ExecutorService newVirtualThreadPerTaskExecutor(int openFiles) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(openFiles);
+        }
+    }
+
+    private void processInput(BufferedReader bufferedReader, HashRecursiveFileVisitor visitor, ChunkWriter chunkWriter,
+                              WalkCheckpoint checkpoint, WalkStats stats) throws IOException {
+        long lines = 0;
+        while (checkpoint != null && lines < checkpoint.getLines() && bufferedReader.readLine() != null) {
+            lines++;
+        }
+        String fileOrDirName;
+        while ((fileOrDirName = bufferedReader.readLine()) != null) {
+            if (stats != null) {
+                stats.input();
+            }
+            try {
+                visitor.visitFile(fileOrDirName);
+            } catch (IOException e) {
+                printErrorMessage("Writing error: error while writing file" + e.getMessage());
+            }
+            lines++;
+            if (checkpoint != null && checkpoint.isDue()) {
+                try {
+                    saveCheckpoint(visitor, chunkWriter, checkpoint, lines);
+                } catch (IOException e) {
+                    printErrorMessage("Checkpoint error: cant write checkpoint " + e.getMessage());
+                }
+            }
+        }
+        try {
+            if (checkpoint != null) {
+                saveCheckpoint(visitor, chunkWriter, checkpoint, lines);
+            } else {
+                visitor.finish();
+            }
+        } catch (IOException e) {
+            printErrorMessage("Writing error: error while writing file" + e.getMessage());
+        }
+    }
+
+    // chunk lines of a file are written when it is hashed, so they are complete once its output line is
+    private static void saveCheckpoint(HashRecursiveFileVisitor visitor, ChunkWriter chunkWriter,
+                                       WalkCheckpoint checkpoint, long lines) throws IOException {
+        visitor.finish();
+        if (chunkWriter != null) {
+            chunkWriter.flush();
+        }
+        checkpoint.save(lines);
+    }
+
+    private void findDuplicates(BufferedReader bufferedReader, Path outputFilePath, WalkOptions options) {
+        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(outputFilePath)) {
+            DuplicateFinder finder = new DuplicateFinder(bufferedWriter, options.getAlgorithm());
+            String fileOrDirName;
+            while ((fileOrDirName = bufferedReader.readLine()) != null) {
+                try {
+                    finder.visitFile(fileOrDirName);
+                } catch (IOException e) {
+                    printErrorMessage("Reading error: cant visit " + fileOrDirName + " " + e.getMessage());
+                }
+            }
+            finder.finish();
+            printErrorMessage(String.format("Duplicates: %d groups, %d of %d bytes hashed",
+                    finder.getGroups(), finder.getHashedBytes(), finder.getTotalBytes()));
+        } catch (IOException e) {
+            printErrorMessage("Output error: cant open output file" + e.getMessage());
+        }
+    }
+
+    private WalkCheckpoint openCheckpoint(WalkOptions options) throws IOException {
+        if (options.getCheckpointFile() == null) {
+            return null;
+        }
+        WalkCheckpoint checkpoint = new WalkCheckpoint(Paths.get(options.getCheckpointFile()));
+        if (options.isResume()) {
+            checkpoint.load();
+        }
+        return checkpoint;
+    }
+
+    private HashCache openCache(WalkOptions options) {
+        if (options.getCacheFile() == null) {
+            return null;
+        }
+        HashCache cache;
+        try {
+            cache = new HashCache(Paths.get(options.getCacheFile()), options.getCacheLimit(), options.getHashId());
+        } catch (InvalidPathException e) {
+            printErrorMessage("Cache file name is wrong: " + e.getMessage());
+            return null;
+        }
+        try {
+            cache.load();
+        } catch (IOException e) {
+            printErrorMessage("Cache error: cant read cache file " + e.getMessage());
+        }
+        return cache;
+    }
+
+    private ChunkWriter openChunkWriter(WalkOptions options, WalkCheckpoint checkpoint) throws IOException {
+        if (options.getTreeChunksFile() == null) {
+            return null;
+        }
+        try {
+            Path file = Paths.get(options.getTreeChunksFile());
+            if (checkpoint == null) {
+                return new ChunkWriter(Files.newBufferedWriter(file), options.getAlgorithm(),
+                        options.getTreeChunkSize(), true);
+            }
+            return new ChunkWriter(checkpoint.openChunks(file), options.getAlgorithm(), options.getTreeChunkSize(),
+                    checkpoint.getChunksOffset() == 0);
+        } catch (InvalidPathException e) {
+            throw new IOException("Chunks file name is wrong: " + e.getMessage(), e);
+        }
+    }
+
     private void printErrorMessage(String errorMessage) {
         System.err.println(errorMessage);
     }
 
     public enum TypeWalk {
         RECURSIVE,
-        BASE
+        BASE,
+        DUPLICATES
     }
 }
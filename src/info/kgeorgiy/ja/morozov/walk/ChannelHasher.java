@@ -0,0 +1,71 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+class ChannelHasher implements FileHasher {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final MessageDigest digest;
+    private final long mapThreshold;
+
+    ChannelHasher(MessageDigest digest) {
+        this(digest, MAP_THRESHOLD);
+    }
+
+    // files of at least mapThreshold bytes are mapped, smaller ones are read into the direct buffer
+    ChannelHasher(MessageDigest digest, long mapThreshold) {
+        this.digest = digest;
+        this.mapThreshold = mapThreshold;
+    }
+
+    @Override
+    public byte[] hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= mapThreshold) {
+                hashMapped(channel, size);
+            } else {
+                hashBuffered(channel);
+            }
+        } catch (IOException e) {
+            digest.reset();
+            throw e;
+        }
+        return digest.digest();
+    }
+
+    private void hashMapped(FileChannel channel, long size) throws IOException {
+        for (long position = 0; position < size; position += MAP_WINDOW) {
+            updateMapped(digest, channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_WINDOW, size - position)));
+        }
+        // file may grow after size was taken
+        channel.position(size);
+        hashBuffered(channel);
+    }
+
+    // reading a mapping of a file truncated after mapping faults with InternalError instead of IOException
+    static void updateMapped(MessageDigest digest, ByteBuffer mapped) throws IOException {
+        try {
+            digest.update(mapped);
+        } catch (InternalError e) {
+            throw new IOException("File was truncated while hashing", e);
+        }
+    }
+
+    private void hashBuffered(FileChannel channel) throws IOException {
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Sidecar output of per-chunk hashes for the tree mode. The first line is
+ * {@code # chunks <algorithm> <chunk size>}, every file starts with a {@code # <size> <mtime> <file name>}
+ * line followed by one {@code <hex hash> <file name>#<chunk index>} line per chunk; lines of one file
+ * are consecutive, so a later run can check that a file is unchanged before using its chunks.
+ * Only files hashed during the run are listed: files answered by the hash cache or shared
+ * with an already hashed hard link have no chunk lines.
+ */
+class ChunkWriter implements Closeable {
+    private final HashWriter hashWriter;
+    private final Writer writer;
+
+    // a resumed run appends to a sidecar that already has the header
+    ChunkWriter(Writer writer, HashAlgorithm algorithm, long chunkSize, boolean header) throws IOException {
+        this.writer = writer;
+        this.hashWriter = new HashWriter(writer);
+        if (header) {
+            hashWriter.writeLine("# chunks " + algorithm.getName() + " " + chunkSize);
+        }
+    }
+
+    // leaves holds the chunk hashes back to back, hashLength bytes each
+    public synchronized void write(Path file, long size, FileTime modified, byte[] leaves, int hashLength)
+            throws IOException {
+        String name = file.toString();
+        hashWriter.writeLine("# " + size + " " + modified + " " + name);
+        for (int i = 0; i * hashLength < leaves.length; i++) {
+            hashWriter.write(leaves, i * hashLength, hashLength, name + "#" + i);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        hashWriter.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        hashWriter.flush();
+        writer.close();
+    }
+}
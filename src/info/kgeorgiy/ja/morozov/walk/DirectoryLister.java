@@ -0,0 +1,111 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Replacement of {@link Files#walkFileTree(Path, FileVisitor)} that lists directories in parallel:
+ * every directory is listed by its own fork-join task, while the calling thread replays the events
+ * to the visitor in the same order as the sequential walk. Listing runs ahead of the replay by at most
+ * {@code 2 * parallelism} subdirectories of each directory on the current path, so the tree is never
+ * held in memory as a whole.
+ */
+class DirectoryLister {
+    private final ForkJoinPool pool;
+    private final int lookahead;
+
+    DirectoryLister(ForkJoinPool pool) {
+        this.pool = pool;
+        this.lookahead = 2 * pool.getParallelism();
+    }
+
+    public void walkFileTree(Path start, FileVisitor<? super Path> visitor) throws IOException {
+        Entry entry = entry(start);
+        start(entry);
+        replay(entry, visitor);
+    }
+
+    private static Entry entry(Path path) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return new Entry(path, null, e, null);
+        }
+        return new Entry(path, attrs, null, attrs.isDirectory() ? new ListTask(path) : null);
+    }
+
+    private void start(Entry entry) {
+        if (entry.listing() != null) {
+            pool.execute(entry.listing());
+        }
+    }
+
+    // every entry is started before it is replayed
+    private void replay(Entry entry, FileVisitor<? super Path> visitor) throws IOException {
+        if (entry.error() != null) {
+            visitor.visitFileFailed(entry.path(), entry.error());
+            return;
+        }
+        if (entry.listing() == null) {
+            visitor.visitFile(entry.path(), entry.attrs());
+            return;
+        }
+        Listing listing = entry.listing().join();
+        if (listing.entries() == null) {
+            visitor.visitFileFailed(entry.path(), listing.error());
+            return;
+        }
+        visitor.preVisitDirectory(entry.path(), entry.attrs());
+        List<Entry> entries = listing.entries();
+        int started = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            for (; started < entries.size() && started <= i + lookahead; started++) {
+                start(entries.get(started));
+            }
+            replay(entries.get(i), visitor);
+            // let the replayed subtree be collected
+            entries.set(i, null);
+        }
+        visitor.postVisitDirectory(entry.path(), listing.error());
+    }
+
+    private record Entry(Path path, BasicFileAttributes attrs, IOException error, ListTask listing) {
+    }
+
+    // entries == null if the directory can't be opened, error != null if listing stopped halfway
+    private record Listing(List<Entry> entries, IOException error) {
+    }
+
+    private static class ListTask extends RecursiveTask<Listing> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+
+        ListTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected Listing compute() {
+            List<Entry> entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                try {
+                    for (Path child : stream) {
+                        entries.add(entry(child));
+                    }
+                } catch (DirectoryIteratorException e) {
+                    return new Listing(entries, e.getCause());
+                }
+            } catch (IOException e) {
+                return new Listing(entries.isEmpty() ? null : entries, e);
+            }
+            return new Listing(entries, null);
+        }
+    }
+}
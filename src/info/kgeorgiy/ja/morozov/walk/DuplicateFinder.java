@@ -0,0 +1,152 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Finds groups of files with equal content during the walk. A file is not read while its size is unique;
+ * once a second file of the same size arrives both are split by the hash of their first {@value PREFIX_SIZE}
+ * bytes, and files whose prefixes collide are hashed completely in the same way.
+ * Empty files are one group that is never read: their hash is the hash of no bytes.
+ * A {@code <hash> <file>} line is written as soon as a file is known to have a duplicate,
+ * all files of a group share the hash, lines of different groups may interleave.
+ */
+class DuplicateFinder extends SimpleFileVisitor<Path> {
+    private static final int PREFIX_SIZE = 4096;
+
+    private final HashWriter hashWriter;
+    private final FileHasher hasher;
+    private final MessageDigest prefixDigest;
+    private final byte[] emptyHash;
+    private final ByteBuffer prefix = ByteBuffer.allocateDirect(PREFIX_SIZE);
+    // the only file seen for a key, or null once the key has two files and they went to the next stage
+    private final Map<Long, Path> bySize = new HashMap<>();
+    private final Map<Key, Path> byPrefix = new HashMap<>();
+    private final Map<Key, Path> byHash = new HashMap<>();
+    private final Set<Path> visited = new HashSet<>();
+    private long totalBytes;
+    private long hashedBytes;
+    private long groups;
+
+    DuplicateFinder(final BufferedWriter bufferedWriter, HashAlgorithm algorithm) {
+        this.hashWriter = new HashWriter(bufferedWriter);
+        this.hasher = new ChannelHasher(algorithm.newDigest());
+        this.prefixDigest = algorithm.newDigest();
+        this.emptyHash = algorithm.newDigest().digest();
+    }
+
+    public void visitFile(String fileOrDirName) throws IOException {
+        try {
+            Files.walkFileTree(Paths.get(fileOrDirName), this);
+        } catch (InvalidPathException e) {
+            throw new IOException("Wrong file name " + fileOrDirName, e);
+        } finally {
+            hashWriter.flush();
+        }
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) throws IOException {
+        if (attr.isRegularFile() && visited.add(file.toAbsolutePath().normalize())) {
+            totalBytes += attr.size();
+            for (Path candidate : collide(bySize, attr.size(), file)) {
+                addPrefix(candidate, attr.size());
+            }
+        }
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) {
+        return FileVisitResult.CONTINUE;
+    }
+
+    public void finish() throws IOException {
+        hashWriter.flush();
+    }
+
+    public long getGroups() {
+        return groups;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHashedBytes() {
+        return hashedBytes;
+    }
+
+    // files to pass to the next stage: none for the first file of a key, both for the second, the new one later
+    private static <K> List<Path> collide(Map<K, Path> seen, K key, Path file) {
+        if (!seen.containsKey(key)) {
+            seen.put(key, file);
+            return List.of();
+        }
+        Path pending = seen.put(key, null);
+        return pending == null ? List.of(file) : List.of(pending, file);
+    }
+
+    private void addPrefix(Path file, long size) throws IOException {
+        if (size == 0) {
+            addHash(file, new Key(0, ByteBuffer.wrap(emptyHash)));
+            return;
+        }
+        byte[] hash;
+        try {
+            hash = hashPrefix(file);
+        } catch (IOException ignored) {
+            // unreadable files have no duplicates
+            return;
+        }
+        if (size <= PREFIX_SIZE) {
+            addHash(file, new Key(size, ByteBuffer.wrap(hash)));
+            return;
+        }
+        for (Path candidate : collide(byPrefix, new Key(size, ByteBuffer.wrap(hash)), file)) {
+            try {
+                byte[] fullHash = hasher.hash(candidate);
+                hashedBytes += size;
+                addHash(candidate, new Key(size, ByteBuffer.wrap(fullHash)));
+            } catch (IOException ignored) {
+                // unreadable files have no duplicates
+            }
+        }
+    }
+
+    private void addHash(Path file, Key key) throws IOException {
+        List<Path> confirmed = collide(byHash, key, file);
+        if (confirmed.size() == 2) {
+            groups++;
+        }
+        for (Path duplicate : confirmed) {
+            hashWriter.write(key.hash().array(), duplicate.toString());
+        }
+    }
+
+    private byte[] hashPrefix(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            prefix.clear();
+            int read;
+            do {
+                read = channel.read(prefix);
+            } while (read >= 0 && prefix.hasRemaining());
+            prefix.flip();
+            hashedBytes += prefix.remaining();
+            prefixDigest.update(prefix);
+            return prefixDigest.digest();
+        } catch (IOException e) {
+            prefixDigest.reset();
+            throw e;
+        }
+    }
+
+    private record Key(long size, ByteBuffer hash) {
+    }
+}
@@ -0,0 +1,8 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+public class DuplicateWalk {
+    public static void main(String[] args) {
+        BaseWalk baseWalk = new BaseWalk();
+        baseWalk.run(args, BaseWalk.TypeWalk.DUPLICATES);
+    }
+}
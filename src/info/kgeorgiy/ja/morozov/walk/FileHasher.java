@@ -0,0 +1,8 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+interface FileHasher {
+    byte[] hash(Path file) throws IOException;
+}
@@ -0,0 +1,40 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public enum HashAlgorithm {
+    SHA_256("sha-256"),
+    SHA_512_256("sha-512/256"),
+    XXH64("xxh64");
+
+    private final String name;
+
+    HashAlgorithm(String name) {
+        this.name = name;
+    }
+
+    public static HashAlgorithm byName(String name) {
+        return Arrays.stream(values())
+                .filter(algorithm -> algorithm.name.equalsIgnoreCase(name))
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown algorithm " + name));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MessageDigest newDigest() {
+        try {
+            return switch (this) {
+                case SHA_256 -> MessageDigest.getInstance("SHA-256");
+                case SHA_512_256 -> MessageDigest.getInstance("SHA-512/256");
+                case XXH64 -> new XxHash64Digest();
+            };
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("Not support " + name + " algorithm", e);
+        }
+    }
+}
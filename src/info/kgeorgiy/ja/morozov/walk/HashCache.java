@@ -0,0 +1,155 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class HashCache {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 3;
+    // files modified this close to the run start may still change within the same timestamp
+    private static final long RACY_SECONDS = 2;
+
+    private final Path file;
+    private final int maxEntries;
+    private final String hashId;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Instant runStart = Instant.now();
+    private long generation;
+
+    HashCache(Path file, int maxEntries, String hashId) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.hashId = hashId;
+    }
+
+    public void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !readString(in).equals(hashId)) {
+                return;
+            }
+            generation = in.readLong() + 1;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = readString(in);
+                Entry entry = new Entry(in.readLong(), in.readLong(), in.readInt(), readString(in),
+                        in.readNBytes(in.readUnsignedByte()), in.readLong());
+                entries.put(path, entry);
+            }
+        } catch (IOException e) {
+            entries.clear();
+            throw e;
+        }
+    }
+
+    public byte[] get(Path path, BasicFileAttributes attrs) {
+        String key = key(path);
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.matches(attrs)) {
+            return null;
+        }
+        entries.put(key, entry.touch(generation));
+        return entry.hash();
+    }
+
+    public void put(Path path, BasicFileAttributes attrs, byte[] hash) {
+        Instant modified = attrs.lastModifiedTime().toInstant();
+        if (modified.isAfter(runStart.minusSeconds(RACY_SECONDS))) {
+            return;
+        }
+        entries.put(key(path), new Entry(attrs.size(), modified.getEpochSecond(), modified.getNano(),
+                fileKeyOf(attrs), hash, generation));
+    }
+
+    public void save() throws IOException {
+        List<Map.Entry<String, Entry>> kept = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().generation() == generation || Files.exists(Paths.get(entry.getKey()))) {
+                kept.add(entry);
+            }
+        }
+        if (kept.size() > maxEntries) {
+            kept.sort(Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().generation()).reversed());
+            kept = kept.subList(0, maxEntries);
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, hashId);
+                out.writeLong(generation);
+                out.writeInt(kept.size());
+                for (Map.Entry<String, Entry> e : kept) {
+                    Entry entry = e.getValue();
+                    writeString(out, e.getKey());
+                    out.writeLong(entry.size());
+                    out.writeLong(entry.seconds());
+                    out.writeInt(entry.nanos());
+                    writeString(out, entry.fileKey());
+                    out.writeByte(entry.hash().length);
+                    out.write(entry.hash());
+                    out.writeLong(entry.generation());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // writeUTF is limited to 64 KB of modified UTF-8, paths are stored with an int length instead
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Cache file is truncated");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static String fileKeyOf(BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return key == null ? "" : key.toString();
+    }
+
+    private record Entry(long size, long seconds, int nanos, String fileKey, byte[] hash, long generation) {
+        boolean matches(BasicFileAttributes attrs) {
+            Instant modified = attrs.lastModifiedTime().toInstant();
+            return size == attrs.size()
+                    && seconds == modified.getEpochSecond()
+                    && nanos == modified.getNano()
+                    && fileKey.equals(fileKeyOf(attrs));
+        }
+
+        Entry touch(long newGeneration) {
+            return new Entry(size, seconds, nanos, fileKey, hash, newGeneration);
+        }
+    }
+}
@@ -1,26 +1,85 @@
 package info.kgeorgiy.ja.morozov.walk;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.security.MessageDigest;
-import java.util.HexFormat;
-
-public class HashRecursiveFileVisitor extends SimpleFileVisitor<Path> {
-    private final HexFormat hexFormat = HexFormat.of();
-    private final BufferedWriter bufferedWriter;
-    private final int BUFFER_SIZE = 1024 * 1024;
-    private final String ZERO = String.format("%064x", 0);
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class HashRecursiveFileVisitor extends SimpleFileVisitor<Path> implements Closeable {
+    private final HashWriter hashWriter;
+    private final byte[] ZERO;
     private final BaseWalk.TypeWalk typeWalk;
-    private final byte[] buffer = new byte[BUFFER_SIZE];
-    private final MessageDigest digest;
+    private final FileHasher hasher;
+    private final ExecutorService executor;
+    private final AsyncHasher asyncHasher;
+    private final Supplier<FileHasher> hasherFactory;
+    private final Queue<FileHasher> idleHashers = new ConcurrentLinkedQueue<>();
+    private final Semaphore hasherPermits;
+    private final AtomicInteger busyHashers = new AtomicInteger();
+    private final OrderedWriter orderedWriter;
+    private final HashCache cache;
+    private final LinkDeduplicator links;
+    private final WalkStats stats;
+    private final DirectoryLister lister;
+
+    HashRecursiveFileVisitor(final BufferedWriter bufferedWriter, BaseWalk.TypeWalk typeWalk, DirectoryLister lister,
+                             int hashLength, Supplier<FileHasher> hasherFactory, HashCache cache,
+                             LinkDeduplicator links, WalkStats stats) {
+        this(bufferedWriter, typeWalk, lister, hashLength, hasherFactory, cache, links, stats, null, 0, 0);
+    }
+
+    HashRecursiveFileVisitor(final BufferedWriter bufferedWriter, BaseWalk.TypeWalk typeWalk, DirectoryLister lister,
+                             int hashLength, Supplier<FileHasher> hasherFactory, HashCache cache,
+                             LinkDeduplicator links, WalkStats stats, ExecutorService executor, int maxOpenFiles,
+                             int maxPending) {
+        this.hashWriter = new HashWriter(bufferedWriter);
+        this.typeWalk = typeWalk;
+        this.lister = lister;
+        this.cache = cache;
+        this.links = links;
+        this.stats = stats;
+        this.executor = executor;
+        this.asyncHasher = null;
+        this.hasher = executor == null ? hasherFactory.get() : null;
+        this.hasherFactory = hasherFactory;
+        this.hasherPermits = maxOpenFiles > 0 ? new Semaphore(maxOpenFiles) : null;
+        this.ZERO = new byte[hashLength];
+        this.orderedWriter = executor == null ? null : newOrderedWriter(maxPending);
+    }
 
-    HashRecursiveFileVisitor(final BufferedWriter bufferedWriter, BaseWalk.TypeWalk typeWalk, MessageDigest digest) {
-        this.bufferedWriter = bufferedWriter;
+    HashRecursiveFileVisitor(final BufferedWriter bufferedWriter, BaseWalk.TypeWalk typeWalk, DirectoryLister lister,
+                             int hashLength, AsyncHasher asyncHasher, HashCache cache, WalkStats stats,
+                             int maxPending) {
+        this.hashWriter = new HashWriter(bufferedWriter);
         this.typeWalk = typeWalk;
-        this.digest = digest;
+        this.lister = lister;
+        this.cache = cache;
+        this.links = null;
+        this.stats = stats;
+        this.executor = null;
+        this.asyncHasher = asyncHasher;
+        this.hasher = null;
+        this.hasherFactory = null;
+        this.hasherPermits = null;
+        this.ZERO = new byte[hashLength];
+        this.orderedWriter = newOrderedWriter(maxPending);
+    }
+
+    private OrderedWriter newOrderedWriter(int capacity) {
+        OrderedWriter writer = new OrderedWriter(hashWriter, ZERO, capacity);
+        if (stats != null) {
+            stats.gauge("write queue", writer::size);
+        }
+        return writer;
     }
 
     public void visitFile(String fileOrDirName) throws IOException {
@@ -28,7 +87,11 @@ public class HashRecursiveFileVisitor extends SimpleFileVisitor<Path> {
             final Path file = Paths.get(fileOrDirName);
             switch (typeWalk) {
                 case RECURSIVE -> {
-                    Files.walkFileTree(file, this);
+                    if (lister == null) {
+                        Files.walkFileTree(file, this);
+                    } else {
+                        lister.walkFileTree(file, this);
+                    }
                 }
                 case BASE -> {
                     if (Files.isRegularFile(file)) {
@@ -39,22 +102,28 @@ public class HashRecursiveFileVisitor extends SimpleFileVisitor<Path> {
                 }
             }
         } catch (IOException | InvalidPathException e) {
+            error();
             write(ZERO, fileOrDirName);
         }
     }
 
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (stats != null) {
+            stats.directory();
+        }
+        return FileVisitResult.CONTINUE;
+    }
+
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attr) throws IOException {
-        try (InputStream inputStream = Files.newInputStream(file)) {
-            int c = 0;
-            while ((c = inputStream.read(buffer)) >= 0) {
-                digest.update(buffer, 0, c);
-            }
-        } catch (IOException e) {
-            write(ZERO, getName(file));
-            return FileVisitResult.CONTINUE;
+        if (asyncHasher != null) {
+            orderedWriter.add(hashAsync(file, attr), getName(file));
+        } else if (executor == null) {
+            write(hash(hasher, file, attr), getName(file));
+        } else {
+            orderedWriter.add(executor.submit(() -> hashPooled(file, attr)), getName(file));
         }
-        write(hexFormat.formatHex(digest.digest()), getName(file));
         return FileVisitResult.CONTINUE;
     }
     @Override
@@ -62,15 +131,124 @@ public class HashRecursiveFileVisitor extends SimpleFileVisitor<Path> {
         if (typeWalk == BaseWalk.TypeWalk.BASE && Files.isDirectory(file)) {
             return FileVisitResult.CONTINUE;
         }
+        error();
         write(ZERO, getName(file));
         return FileVisitResult.CONTINUE;
     }
 
+    public void finish() throws IOException {
+        if (orderedWriter == null) {
+            hashWriter.flush();
+        } else {
+            orderedWriter.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (orderedWriter != null) {
+            orderedWriter.close();
+        }
+    }
+
+    private byte[] hash(FileHasher fileHasher, Path file, BasicFileAttributes attr) {
+        long start = stats == null ? 0 : System.nanoTime();
+        try {
+            byte[] hash = links == null ? hashCached(fileHasher, file, attr)
+                    : links.hash(file, attr, () -> hashCached(fileHasher, file, attr));
+            if (stats != null) {
+                stats.file(attr.size(), System.nanoTime() - start);
+            }
+            return hash;
+        } catch (IOException e) {
+            error();
+            return ZERO;
+        }
+    }
+
+    // hashers and their buffers are reused between tasks; with an unbounded executor
+    // at most maxOpenFiles files are open at once
+    private byte[] hashPooled(Path file, BasicFileAttributes attr) throws InterruptedException {
+        if (hasherPermits != null) {
+            hasherPermits.acquire();
+        }
+        busyHashers.incrementAndGet();
+        FileHasher pooled = idleHashers.poll();
+        if (pooled == null) {
+            pooled = hasherFactory.get();
+        }
+        try {
+            return hash(pooled, file, attr);
+        } finally {
+            idleHashers.add(pooled);
+            busyHashers.decrementAndGet();
+            if (hasherPermits != null) {
+                hasherPermits.release();
+            }
+        }
+    }
+
+    public int busyHashers() {
+        return busyHashers.get();
+    }
+
+    private void error() {
+        if (stats != null) {
+            stats.error();
+        }
+    }
+
+    private byte[] hashCached(FileHasher fileHasher, Path file, BasicFileAttributes attr) throws IOException {
+        if (cache == null) {
+            return fileHasher.hash(file);
+        }
+        byte[] hash = cache.get(file, attr);
+        if (hash == null) {
+            hash = fileHasher.hash(file);
+            cache.put(file, attr, hash);
+        }
+        return hash;
+    }
+
+    private Future<byte[]> hashAsync(Path file, BasicFileAttributes attr) {
+        byte[] cached = cache == null ? null : cache.get(file, attr);
+        if (cached != null) {
+            if (stats != null) {
+                stats.file(attr.size(), 0);
+            }
+            return CompletableFuture.completedFuture(cached);
+        }
+        long start = stats == null ? 0 : System.nanoTime();
+        try {
+            CompletableFuture<byte[]> hash = asyncHasher.hash(file);
+            if (stats != null) {
+                hash.whenComplete((result, e) -> {
+                    if (e == null) {
+                        stats.file(attr.size(), System.nanoTime() - start);
+                    } else {
+                        stats.error();
+                    }
+                });
+            }
+            return cache == null ? hash : hash.thenApply(result -> {
+                cache.put(file, attr, result);
+                return result;
+            });
+        } catch (IOException e) {
+            error();
+            return CompletableFuture.completedFuture(ZERO);
+        }
+    }
+
     private String getName(Path file) {
         return file.toString();
     }
 
-    private void write(String hash, String fileName) throws IOException {
-        bufferedWriter.write(String.format("%s %s%n", hash, fileName));
+    private void write(byte[] hash, String fileName) throws IOException {
+        if (orderedWriter == null) {
+            hashWriter.write(hash, fileName);
+        } else {
+            orderedWriter.add(CompletableFuture.completedFuture(hash), fileName);
+        }
     }
 }
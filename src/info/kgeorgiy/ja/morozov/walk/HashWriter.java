@@ -0,0 +1,68 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes {@code <hex hash> <file name><line separator>} lines into a reusable
+ * block buffer without creating intermediate strings.
+ */
+class HashWriter implements Flushable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer writer;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length;
+
+    HashWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public void write(byte[] hash, String fileName) throws IOException {
+        write(hash, 0, hash.length, fileName);
+    }
+
+    public void write(byte[] hashes, int offset, int hashLength, String fileName) throws IOException {
+        if (length + 2 * hashLength + 1 > buffer.length) {
+            flushBuffer();
+        }
+        for (int i = offset; i < offset + hashLength; i++) {
+            buffer[length++] = HEX_DIGITS[(hashes[i] >> 4) & 0xF];
+            buffer[length++] = HEX_DIGITS[hashes[i] & 0xF];
+        }
+        buffer[length++] = ' ';
+        append(fileName);
+        append(LINE_SEPARATOR);
+    }
+
+    public void writeLine(String line) throws IOException {
+        append(line);
+        append(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    private void append(String s) throws IOException {
+        if (length + s.length() > buffer.length) {
+            flushBuffer();
+            if (s.length() > buffer.length) {
+                writer.write(s);
+                return;
+            }
+        }
+        s.getChars(0, s.length(), buffer, length);
+        length += s.length();
+    }
+
+    private void flushBuffer() throws IOException {
+        writer.write(buffer, 0, length);
+        length = 0;
+    }
+}
@@ -0,0 +1,66 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one digest between all paths of the same file key (inode), so hard links are hashed once.
+ * Only other paths of an already hashed file count as reused: visiting the same path again saves nothing.
+ */
+class LinkDeduplicator {
+    private final Map<Object, Shared> hashes = new ConcurrentHashMap<>();
+    private final AtomicLong reusedFiles = new AtomicLong();
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    public byte[] hash(Path file, BasicFileAttributes attrs, HashFunction function) throws IOException {
+        Object key = attrs.fileKey();
+        if (key == null) {
+            return function.hash();
+        }
+        Path path = file.toAbsolutePath().normalize();
+        while (true) {
+            Shared shared = new Shared(path, new CompletableFuture<>());
+            Shared existing = hashes.putIfAbsent(key, shared);
+            if (existing == null) {
+                try {
+                    byte[] hash = function.hash();
+                    shared.hash().complete(hash);
+                    return hash;
+                } catch (IOException | RuntimeException e) {
+                    hashes.remove(key, shared);
+                    shared.hash().complete(null);
+                    throw e;
+                }
+            }
+            byte[] hash = existing.hash().join();
+            if (hash != null) {
+                if (!existing.first().equals(path)) {
+                    reusedFiles.incrementAndGet();
+                    savedBytes.addAndGet(attrs.size());
+                }
+                return hash;
+            }
+        }
+    }
+
+    public long getReusedFiles() {
+        return reusedFiles.get();
+    }
+
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    private record Shared(Path first, CompletableFuture<byte[]> hash) {
+    }
+
+    @FunctionalInterface
+    interface HashFunction {
+        byte[] hash() throws IOException;
+    }
+}
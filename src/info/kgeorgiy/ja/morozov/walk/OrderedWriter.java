@@ -0,0 +1,124 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Writer stage of the walk pipeline: a dedicated thread waits for hashes in the order they
+ * were added and writes them. The bounded queue blocks the producer when the writer falls behind.
+ */
+class OrderedWriter implements Closeable {
+    private final HashWriter hashWriter;
+    private final byte[] zero;
+    private final BlockingQueue<Pending> queue;
+    private final Thread thread;
+    private volatile IOException error;
+
+    OrderedWriter(HashWriter hashWriter, byte[] zero, int capacity) {
+        this.hashWriter = hashWriter;
+        this.zero = zero;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::run, "walk-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void add(Future<byte[]> hash, String fileName) throws IOException {
+        put(new Pending(hash, fileName, null));
+    }
+
+    /**
+     * Waits until everything added before is written and flushed.
+     */
+    public void flush() throws IOException {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        put(new Pending(null, null, flushed));
+        try {
+            flushed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing", e);
+        } catch (ExecutionException e) {
+            throw new AssertionError("Flush barrier is never completed exceptionally", e);
+        }
+        checkError();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void put(Pending entry) throws IOException {
+        checkError();
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for writer", e);
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // the thread must survive any failure: a dead writer would block add() and flush() forever
+    private void run() {
+        try {
+            while (true) {
+                Pending entry = queue.take();
+                if (entry.flushed() != null) {
+                    try {
+                        if (error == null) {
+                            hashWriter.flush();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        fail(e);
+                    } finally {
+                        entry.flushed().complete(null);
+                    }
+                } else if (error == null) {
+                    try {
+                        hashWriter.write(get(entry.hash()), entry.fileName());
+                    } catch (IOException | RuntimeException e) {
+                        fail(e);
+                    }
+                }
+            }
+        } catch (InterruptedException ignored) {
+            // closed
+        }
+    }
+
+    private void fail(Exception e) {
+        error = e instanceof IOException io ? io : new IOException("Writer failed: " + e, e);
+    }
+
+    private byte[] get(Future<byte[]> hash) throws InterruptedException {
+        try {
+            return hash.get();
+        } catch (ExecutionException e) {
+            return zero;
+        }
+    }
+
+    private record Pending(Future<byte[]> hash, String fileName, CompletableFuture<Void> flushed) {
+    }
+}
@@ -0,0 +1,144 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Merkle tree hash of a file: chunks are hashed in parallel as {@code H(0x00 || chunk)},
+ * inner nodes as {@code H(0x01 || left || right)}, an odd node is promoted to the next level.
+ */
+class TreeHasher implements FileHasher {
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+    public static final int MIN_CHUNK_SIZE = 4096;
+    // one mapping is made per task, small chunks are grouped so that a task covers about this many bytes
+    private static final long TASK_BYTES = 8L * 1024 * 1024;
+
+    private final ThreadLocal<MessageDigest> digests;
+    private final long chunkSize;
+    private final int leavesPerTask;
+    private final ChunkWriter chunkWriter;
+    private final ForkJoinPool pool;
+
+    TreeHasher(HashAlgorithm algorithm, long chunkSize, ChunkWriter chunkWriter, ForkJoinPool pool) {
+        this.digests = ThreadLocal.withInitial(algorithm::newDigest);
+        this.chunkSize = chunkSize;
+        // a power of two, so that every task covers a complete subtree
+        this.leavesPerTask = Integer.highestOneBit((int) Math.max(1, TASK_BYTES / chunkSize));
+        this.chunkWriter = chunkWriter;
+        this.pool = pool;
+    }
+
+    @Override
+    public byte[] hash(Path file) throws IOException {
+        FileTime modified = chunkWriter == null ? null : Files.getLastModifiedTime(file);
+        byte[][] subtrees;
+        byte[] leaves = null;
+        long size;
+        int hashLength = digests.get().getDigestLength();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            try {
+                subtrees = new byte[Math.toIntExact((chunks + leavesPerTask - 1) / leavesPerTask)][];
+                if (chunkWriter != null) {
+                    leaves = new byte[Math.toIntExact(chunks * hashLength)];
+                }
+            } catch (ArithmeticException e) {
+                throw new IOException("Too many chunks in file of " + size + " bytes: " + file);
+            }
+            pool.invoke(new LeafTask(channel, size, chunks, subtrees, leaves, 0, subtrees.length));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (chunkWriter != null) {
+            chunkWriter.write(file, size, modified, leaves, hashLength);
+        }
+        return root(subtrees, subtrees.length);
+    }
+
+    // an aligned block of 2^k leaves is a complete subtree, and the last, partial block is promoted
+    // exactly as in the whole tree, so the root over the subtree roots is the root of the file
+    private byte[] root(byte[][] level, int length) {
+        MessageDigest digest = digests.get();
+        while (length > 1) {
+            int next = 0;
+            for (int i = 0; i + 1 < length; i += 2) {
+                digest.update(NODE);
+                digest.update(level[i]);
+                digest.update(level[i + 1]);
+                level[next++] = digest.digest();
+            }
+            if (length % 2 == 1) {
+                level[next++] = level[length - 1];
+            }
+            length = next;
+        }
+        return level[0];
+    }
+
+    // hashes subtrees [from, to), each of leavesPerTask chunks mapped as one window
+    private class LeafTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long size;
+        private final long chunks;
+        private final byte[][] subtrees;
+        private final byte[] leaves;
+        private final int from;
+        private final int to;
+
+        LeafTask(FileChannel channel, long size, long chunks, byte[][] subtrees, byte[] leaves, int from, int to) {
+            this.channel = channel;
+            this.size = size;
+            this.chunks = chunks;
+            this.subtrees = subtrees;
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LeafTask(channel, size, chunks, subtrees, leaves, from, mid),
+                        new LeafTask(channel, size, chunks, subtrees, leaves, mid, to));
+                return;
+            }
+            MessageDigest digest = digests.get();
+            long first = (long) from * leavesPerTask;
+            int count = (int) Math.min(leavesPerTask, chunks - first);
+            long start = first * chunkSize;
+            try {
+                ByteBuffer window = start >= size ? ByteBuffer.allocate(0)
+                        : channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, count * chunkSize));
+                byte[][] level = new byte[count][];
+                for (int i = 0; i < count; i++) {
+                    int offset = (int) Math.min(window.capacity(), i * chunkSize);
+                    int length = (int) Math.min(chunkSize, window.capacity() - offset);
+                    digest.update(LEAF);
+                    ChannelHasher.updateMapped(digest, window.slice(offset, length));
+                    level[i] = digest.digest();
+                    if (leaves != null) {
+                        System.arraycopy(level[i], 0, leaves, (int) ((first + i) * level[i].length), level[i].length);
+                    }
+                }
+                subtrees[from] = root(level, count);
+            } catch (IOException e) {
+                digest.reset();
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
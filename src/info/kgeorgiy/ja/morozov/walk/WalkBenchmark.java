@@ -0,0 +1,290 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the walk hashing paths: {@code java WalkBenchmark <scenario> [sizes...]}.
+ * Every case processes about {@value #TOTAL_BYTES} bytes per round, the best of {@value #ROUNDS} rounds
+ * after {@value #WARMUP_ROUNDS} warm-up rounds is printed. Files are created in a temporary directory
+ * and read from the page cache, so disk speed is not measured. The {@code virtual} scenario takes
+ * file counts instead of sizes and walks a whole tree of {@value #SMALL_FILE} byte files; it compares
+ * virtual threads with the fixed pool only on Java 21 and later, older runtimes run {@code -virtual}
+ * on a fixed pool too.
+ */
+public class WalkBenchmark {
+    private static final long TOTAL_BYTES = 256L * 1024 * 1024;
+    private static final int MAX_FILES = 4096;
+    private static final int LINES = 1 << 20;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final int[] DEFAULT_SIZES = {4 << 10, 64 << 10, 1 << 20, 16 << 20, 256 << 20};
+    private static final int SMALL_FILE = 4096;
+    private static final int FILES_PER_DIRECTORY = 1000;
+    private static final int TREE_ROUNDS = 3;
+    private static final int OPEN_FILES = 64;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        if (args == null || args.length == 0) {
+            System.err.println("Usage: WalkBenchmark io|digest|write|virtual [sizes...]");
+            return;
+        }
+        int[] sizes = args.length > 1 ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : args[0].equals("virtual") ? new int[]{1_000_000} : DEFAULT_SIZES;
+        try {
+            for (int size : sizes) {
+                switch (args[0]) {
+                    case "io" -> io(size);
+                    case "digest" -> digest(size);
+                    case "write" -> write(size);
+                    case "virtual" -> virtual(size);
+                    default -> {
+                        System.err.println("Unknown scenario " + args[0]);
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Benchmark error: " + e.getMessage());
+        }
+        if (sink == 42) {
+            System.err.println();
+        }
+    }
+
+    // InputStream into a heap array, the way files were read before, against the FileChannel paths;
+    // xxh64 is fast enough for reading to dominate. Mappings are released only by GC, so thousands of
+    // small mapped files run into the mapping count limit: mmap is measured from the threshold it is used at
+    private static void io(int size) throws IOException {
+        withFiles(size, files -> {
+            measure("InputStream", size, files, () -> new StreamHasher(HashAlgorithm.XXH64.newDigest()));
+            measure("FileChannel direct buffer", size, files,
+                    () -> new ChannelHasher(HashAlgorithm.XXH64.newDigest(), Long.MAX_VALUE));
+            if (size >= ChannelHasher.MAP_THRESHOLD) {
+                measure("FileChannel mmap", size, files, () -> new ChannelHasher(HashAlgorithm.XXH64.newDigest(), 0));
+            }
+        });
+    }
+
+    // every algorithm over the same bytes from memory, through a heap array and a direct buffer
+    private static void digest(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        ByteBuffer direct = ByteBuffer.allocateDirect(size).put(data).flip();
+        int repeat = (int) Math.max(1, TOTAL_BYTES / size);
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            MessageDigest digest = algorithm.newDigest();
+            measure(algorithm.getName() + " byte[]", size, repeat, () -> digest.update(data));
+            measure(algorithm.getName() + " direct", size, repeat, () -> digest.update(direct.rewind()));
+            sink += digest.digest()[0];
+        }
+    }
+
+    private static void measure(String name, int size, int repeat, Runnable update) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < repeat; r++) {
+                update.run();
+            }
+            long time = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, time);
+            }
+        }
+        print(name, size, best, repeat, (long) repeat * size);
+    }
+
+    // output lines for file names of the given length: String.format of the HexFormat string, the way
+    // lines were written before, against HashWriter; allocation is counted by the thread allocation counter
+    private static void write(int size) throws IOException {
+        Random random = new Random(size);
+        byte[] hash = new byte[32];
+        random.nextBytes(hash);
+        String name = random.ints(size, 'a', 'z' + 1)
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+        HexFormat hex = HexFormat.of();
+        measureLines("String.format", size, out -> {
+            for (int i = 0; i < LINES; i++) {
+                out.write(String.format("%s %s%n", hex.formatHex(hash), name));
+            }
+            out.flush();
+        });
+        measureLines("HashWriter", size, out -> {
+            HashWriter writer = new HashWriter(out);
+            for (int i = 0; i < LINES; i++) {
+                writer.write(hash, name);
+            }
+            writer.flush();
+        });
+    }
+
+    private static void measureLines(String name, int size, Lines lines) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long best = Long.MAX_VALUE;
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            BufferedWriter out = new BufferedWriter(
+                    new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+            long startBytes = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            lines.write(out);
+            long time = System.nanoTime() - start;
+            long bytes = threads.getCurrentThreadAllocatedBytes() - startBytes;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, time);
+                allocated = Math.min(allocated, bytes);
+            }
+        }
+        System.out.printf("%-32s %10d %10.1f ns/op %8.1f B/op%n", name, size,
+                (double) best / LINES, (double) allocated / LINES);
+    }
+
+    // the whole walk of a tree of small files: a virtual thread per file limited by the semaphore
+    // against the fixed pool of -threads with the same number of open files
+    private static void virtual(int count) throws IOException {
+        if (Runtime.version().feature() < 21) {
+            System.out.println("No virtual threads in Java " + Runtime.version().feature()
+                    + ": -virtual runs on a fixed pool, both cases measure the same executor");
+        }
+        Path dir = Files.createTempDirectory("walk-benchmark");
+        try {
+            Random random = new Random(count);
+            byte[] data = new byte[SMALL_FILE];
+            for (int i = 0; i < count; i++) {
+                Path parent = dir.resolve(Integer.toString(i / FILES_PER_DIRECTORY));
+                if (i % FILES_PER_DIRECTORY == 0) {
+                    Files.createDirectory(parent);
+                }
+                random.nextBytes(data);
+                Files.write(parent.resolve(Integer.toString(i)), data);
+            }
+            Path input = Files.writeString(dir.resolveSibling(dir.getFileName() + ".in"), dir.toString());
+            Path output = dir.resolveSibling(dir.getFileName() + ".out");
+            try {
+                String open = Integer.toString(OPEN_FILES);
+                measureWalk("-threads " + open, count, input, output, "-threads", open);
+                measureWalk("-virtual " + open, count, input, output, "-virtual", open);
+            } finally {
+                Files.deleteIfExists(input);
+                Files.deleteIfExists(output);
+            }
+        } finally {
+            try (Stream<Path> walk = Files.walk(dir)) {
+                for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static void measureWalk(String name, int count, Path input, Path output, String... options) {
+        String[] args = Stream.concat(Arrays.stream(options), Stream.of(input.toString(), output.toString()))
+                .toArray(String[]::new);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 1 + TREE_ROUNDS; round++) {
+            long start = System.nanoTime();
+            RecursiveWalk.main(args);
+            long time = System.nanoTime() - start;
+            if (round >= 1) {
+                best = Math.min(best, time);
+            }
+        }
+        print(name, SMALL_FILE, best, count, (long) count * SMALL_FILE);
+    }
+
+    private static void withFiles(int size, FilesTask task) throws IOException {
+        Path dir = Files.createTempDirectory("walk-benchmark");
+        List<Path> files = new ArrayList<>();
+        try {
+            Random random = new Random(size);
+            byte[] data = new byte[size];
+            int count = (int) Math.max(1, Math.min(MAX_FILES, TOTAL_BYTES / size));
+            for (int i = 0; i < count; i++) {
+                random.nextBytes(data);
+                files.add(Files.write(dir.resolve(Integer.toString(i)), data));
+            }
+            task.run(files);
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void measure(String name, int size, List<Path> files, Supplier<FileHasher> factory)
+            throws IOException {
+        FileHasher hasher = factory.get();
+        int repeat = (int) Math.max(1, TOTAL_BYTES / ((long) size * files.size()));
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < repeat; r++) {
+                for (Path file : files) {
+                    sink += hasher.hash(file)[0];
+                }
+            }
+            long time = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, time);
+            }
+        }
+        long operations = (long) repeat * files.size();
+        print(name, size, best, operations, operations * size);
+    }
+
+    private static void print(String name, int size, long time, long operations, long bytes) {
+        System.out.printf("%-32s %10d %10.1f us/op %8.0f MB/s%n", name, size,
+                time / 1e3 / operations, bytes * 1e3 / time);
+    }
+
+    @FunctionalInterface
+    private interface Lines {
+        void write(BufferedWriter out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FilesTask {
+        void run(List<Path> files) throws IOException;
+    }
+
+    private static class StreamHasher implements FileHasher {
+        private final byte[] buffer = new byte[1024 * 1024];
+        private final MessageDigest digest;
+
+        StreamHasher(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public byte[] hash(Path file) throws IOException {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                int c;
+                while ((c = inputStream.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, c);
+                }
+            }
+            return digest.digest();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal of a walk: number of completed input lines and the sizes of the output and of the
+ * {@code -treeChunks} sidecar after them. Saved at most once per {@link #INTERVAL_SECONDS} and always
+ * at the end of the run; both outputs are forced to disk before the journal that points into them.
+ */
+class WalkCheckpoint {
+    private static final long INTERVAL_SECONDS = 1;
+
+    private final Path journal;
+    private long lines;
+    private long offset;
+    private long chunksOffset;
+    private long lastSave = System.nanoTime();
+    private FileChannel output;
+    private FileChannel chunks;
+
+    WalkCheckpoint(Path journal) {
+        this.journal = journal;
+    }
+
+    public void load() throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        String[] parts = Files.readString(journal).trim().split(" ");
+        try {
+            if (parts.length != 3) {
+                throw new NumberFormatException("expected three numbers");
+            }
+            lines = Long.parseLong(parts[0]);
+            offset = Long.parseLong(parts[1]);
+            chunksOffset = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Wrong checkpoint " + journal + ": " + e.getMessage(), e);
+        }
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getChunksOffset() {
+        return chunksOffset;
+    }
+
+    public BufferedWriter openOutput(Path file) throws IOException {
+        output = open(file, offset);
+        return new BufferedWriter(Channels.newWriter(output, StandardCharsets.UTF_8));
+    }
+
+    public BufferedWriter openChunks(Path file) throws IOException {
+        chunks = open(file, chunksOffset);
+        return new BufferedWriter(Channels.newWriter(chunks, StandardCharsets.UTF_8));
+    }
+
+    // output written after the saved checkpoint is dropped, the resumed run writes it again
+    private static FileChannel open(Path file, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() < offset) {
+            channel.close();
+            throw new IOException("Output " + file + " is shorter than checkpoint offset " + offset);
+        }
+        channel.truncate(offset);
+        channel.position(offset);
+        return channel;
+    }
+
+    public boolean isDue() {
+        return System.nanoTime() - lastSave >= TimeUnit.SECONDS.toNanos(INTERVAL_SECONDS);
+    }
+
+    /**
+     * Saves the checkpoint. All output of the first {@code completedLines} lines must be flushed.
+     */
+    public void save(long completedLines) throws IOException {
+        output.force(true);
+        if (chunks != null) {
+            chunks.force(true);
+        }
+        lines = completedLines;
+        offset = output.position();
+        chunksOffset = chunks == null ? 0 : chunks.position();
+        Path tmp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(lines + " " + offset + " " + chunksOffset
+                    + System.lineSeparator());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSave = System.nanoTime();
+    }
+}
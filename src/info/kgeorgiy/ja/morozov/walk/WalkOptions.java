@@ -0,0 +1,163 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+class WalkOptions {
+    private final Set<String> given = new LinkedHashSet<>();
+    private int threads = 1;
+    private HashAlgorithm algorithm = HashAlgorithm.SHA_256;
+    private int treeChunkSize;
+    private String treeChunksFile;
+    private int virtualOpenFiles;
+    private int listThreads;
+    private int queueDepth;
+    private boolean dedupLinks;
+    private String cacheFile;
+    private String checkpointFile;
+    private boolean resume;
+    private int progressSeconds;
+    private String statsFile;
+    private int cacheLimit = 1 << 22;
+
+    public int parse(String[] args) {
+        int i = 0;
+        while (args.length - i > 2 && args[i] != null && args[i].startsWith("-")) {
+            String name = args[i];
+            String value = args[i + 1];
+            if (value == null) {
+                throw new IllegalArgumentException("Expected value for option " + name);
+            }
+            given.add(name);
+            switch (name) {
+                case "-threads" -> threads = parsePositive(name, value);
+                case "-algorithm" -> algorithm = HashAlgorithm.byName(value);
+                case "-tree" -> treeChunkSize = parsePositive(name, value);
+                case "-treeChunks" -> treeChunksFile = value;
+                case "-virtual" -> virtualOpenFiles = parsePositive(name, value);
+                case "-listThreads" -> listThreads = parsePositive(name, value);
+                case "-queueDepth" -> queueDepth = parsePositive(name, value);
+                case "-dedupLinks" -> dedupLinks = parseBoolean(name, value);
+                case "-cache" -> cacheFile = value;
+                case "-cacheLimit" -> cacheLimit = parsePositive(name, value);
+                case "-checkpoint" -> checkpointFile = value;
+                case "-resume" -> resume = parseBoolean(name, value);
+                case "-progress" -> progressSeconds = parsePositive(name, value);
+                case "-stats" -> statsFile = value;
+                default -> throw new IllegalArgumentException("Unknown option " + name);
+            }
+            i += 2;
+        }
+        if (isTree() && treeChunkSize < TreeHasher.MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Option -tree expects chunk size of at least "
+                    + TreeHasher.MIN_CHUNK_SIZE + " - actual " + treeChunkSize);
+        }
+        if (queueDepth > 0 && (isTree() || dedupLinks || virtualOpenFiles > 0)) {
+            throw new IllegalArgumentException("Option -queueDepth can't be combined with -tree, -dedupLinks or -virtual");
+        }
+        if (treeChunksFile != null && !isTree()) {
+            throw new IllegalArgumentException("Option -treeChunks requires -tree");
+        }
+        if (resume && checkpointFile == null) {
+            throw new IllegalArgumentException("Option -resume requires -checkpoint");
+        }
+        return i;
+    }
+
+    // duplicate search reads files one by one and keeps no state between runs
+    public void checkDuplicates() {
+        for (String name : given) {
+            if (!name.equals("-algorithm")) {
+                throw new IllegalArgumentException("Option " + name + " is not supported by duplicate search");
+            }
+        }
+    }
+
+    private static int parsePositive(String name, String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result <= 0) {
+                throw new IllegalArgumentException("Expected positive value for option " + name + " - actual " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected number for option " + name + " - actual " + value);
+        }
+    }
+
+    private static boolean parseBoolean(String name, String value) {
+        return switch (value) {
+            case "on", "true" -> true;
+            case "off", "false" -> false;
+            default -> throw new IllegalArgumentException("Expected on or off for option " + name + " - actual " + value);
+        };
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public HashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public boolean isTree() {
+        return treeChunkSize > 0;
+    }
+
+    public int getTreeChunkSize() {
+        return treeChunkSize;
+    }
+
+    public String getTreeChunksFile() {
+        return treeChunksFile;
+    }
+
+    public String getHashId() {
+        return isTree() ? algorithm.getName() + "/tree/" + treeChunkSize : algorithm.getName();
+    }
+
+    public int getVirtualOpenFiles() {
+        return virtualOpenFiles;
+    }
+
+    public int getListThreads() {
+        return listThreads;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public boolean isDedupLinks() {
+        return dedupLinks;
+    }
+
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    public int getCacheLimit() {
+        return cacheLimit;
+    }
+
+    public boolean isStats() {
+        return progressSeconds > 0 || statsFile != null;
+    }
+
+    public int getProgressSeconds() {
+        return progressSeconds;
+    }
+
+    public String getStatsFile() {
+        return statsFile;
+    }
+
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+}
@@ -0,0 +1,154 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters of a walk run. Hash latencies are kept in a histogram with power of two nanosecond buckets.
+ */
+class WalkStats {
+    private static final int BUCKETS = 64;
+
+    private final long start = System.nanoTime();
+    private final LongAdder inputs = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder directories = new LongAdder();
+    private final LongAdder[] latencies = new LongAdder[BUCKETS];
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService reporter;
+
+    WalkStats() {
+        for (int i = 0; i < BUCKETS; i++) {
+            latencies[i] = new LongAdder();
+        }
+    }
+
+    public void input() {
+        inputs.increment();
+    }
+
+    public void directory() {
+        directories.increment();
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    public void file(long size, long nanos) {
+        files.increment();
+        bytes.add(size);
+        latencies[BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 1))].increment();
+    }
+
+    public void gauge(String name, IntSupplier value) {
+        gauges.add(new Gauge(name, value));
+    }
+
+    public void startReporting(long periodSeconds, Path jsonFile) {
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "walk-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> report(jsonFile), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public void finish(Path jsonFile) {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+        report(jsonFile);
+    }
+
+    private void report(Path jsonFile) {
+        if (jsonFile == null) {
+            System.err.println(toLine());
+            return;
+        }
+        try {
+            Path tmp = jsonFile.resolveSibling(jsonFile.getFileName() + ".tmp");
+            Files.writeString(tmp, toJson());
+            Files.move(tmp, jsonFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Stats error: cant write stats file " + e.getMessage());
+        }
+    }
+
+    private long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private long bytesPerSecond() {
+        return bytes.sum() * 1000 / Math.max(elapsedMillis(), 1);
+    }
+
+    // upper bound of the bucket containing the given quantile
+    private long percentile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += latencies[i].sum();
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += latencies[i].sum();
+            if (seen >= rank && seen > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    private static long upperBound(int bucket) {
+        return (1L << bucket) - 1;
+    }
+
+    private String toLine() {
+        StringBuilder line = new StringBuilder(String.format(
+                "Walk: %d ms, %d inputs, %d files, %d bytes (%d B/s), %d directories, %d errors, "
+                        + "hash latency p50 < %d ns, p99 < %d ns",
+                elapsedMillis(), inputs.sum(), files.sum(), bytes.sum(), bytesPerSecond(), directories.sum(),
+                errors.sum(), percentile(0.5), percentile(0.99)));
+        for (Gauge gauge : gauges) {
+            line.append(String.format(", %s %d", gauge.name(), gauge.value().getAsInt()));
+        }
+        return line.toString();
+    }
+
+    private String toJson() {
+        StringBuilder histogram = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = latencies[i].sum();
+            if (count > 0) {
+                histogram.append(histogram.length() == 0 ? "" : ", ")
+                        .append(String.format("\"%d\": %d", upperBound(i), count));
+            }
+        }
+        StringBuilder queues = new StringBuilder();
+        for (Gauge gauge : gauges) {
+            queues.append(queues.length() == 0 ? "" : ", ")
+                    .append(String.format("\"%s\": %d", gauge.name(), gauge.value().getAsInt()));
+        }
+        return String.format("{\"elapsedMillis\": %d, \"inputs\": %d, \"files\": %d, \"bytes\": %d, "
+                        + "\"bytesPerSecond\": %d, \"directories\": %d, \"errors\": %d, "
+                        + "\"latencyNanos\": {\"p50\": %d, \"p90\": %d, \"p99\": %d}, \"latencyHistogram\": {%s}, "
+                        + "\"queues\": {%s}}%n",
+                elapsedMillis(), inputs.sum(), files.sum(), bytes.sum(), bytesPerSecond(), directories.sum(),
+                errors.sum(), percentile(0.5), percentile(0.9), percentile(0.99), histogram, queues);
+    }
+
+    private record Gauge(String name, IntSupplier value) {
+    }
+}
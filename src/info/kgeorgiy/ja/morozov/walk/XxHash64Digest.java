@@ -0,0 +1,160 @@
+package info.kgeorgiy.ja.morozov.walk;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * Non-cryptographic <a href="https://github.com/Cyan4973/xxHash">XXH64</a> hash with zero seed
+ * exposed as {@link MessageDigest}. Digest is written in canonical (big-endian) form.
+ */
+class XxHash64Digest extends MessageDigest {
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final byte[] stripe = new byte[STRIPE];
+    private int stripeLength;
+    private long total;
+    private long v1, v2, v3, v4;
+
+    XxHash64Digest() {
+        super("XXH64");
+        engineReset();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        stripe[stripeLength++] = input;
+        total++;
+        if (stripeLength == STRIPE) {
+            consume(stripe, 0);
+            stripeLength = 0;
+        }
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        total += len;
+        if (stripeLength > 0) {
+            int n = Math.min(len, STRIPE - stripeLength);
+            System.arraycopy(input, offset, stripe, stripeLength, n);
+            stripeLength += n;
+            offset += n;
+            len -= n;
+            if (stripeLength < STRIPE) {
+                return;
+            }
+            consume(stripe, 0);
+            stripeLength = 0;
+        }
+        for (; len >= STRIPE; offset += STRIPE, len -= STRIPE) {
+            consume(input, offset);
+        }
+        System.arraycopy(input, offset, stripe, 0, len);
+        stripeLength = len;
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        if (input.hasArray()) {
+            int position = input.position();
+            engineUpdate(input.array(), input.arrayOffset() + position, input.limit() - position);
+            input.position(input.limit());
+            return;
+        }
+        while (stripeLength > 0 && input.hasRemaining()) {
+            engineUpdate(input.get());
+        }
+        ByteBuffer le = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int stripes = le.remaining() / STRIPE;
+        for (int i = 0, offset = 0; i < stripes; i++, offset += STRIPE) {
+            v1 = round(v1, le.getLong(offset));
+            v2 = round(v2, le.getLong(offset + 8));
+            v3 = round(v3, le.getLong(offset + 16));
+            v4 = round(v4, le.getLong(offset + 24));
+        }
+        int consumed = stripes * STRIPE;
+        total += consumed;
+        input.position(input.position() + consumed);
+        while (input.hasRemaining()) {
+            engineUpdate(input.get());
+        }
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long h;
+        if (total >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = P5;
+        }
+        h += total;
+
+        int i = 0;
+        for (; i + 8 <= stripeLength; i += 8) {
+            h ^= round(0, (long) LONG_LE.get(stripe, i));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        if (i + 4 <= stripeLength) {
+            h ^= Integer.toUnsignedLong((int) INT_LE.get(stripe, i)) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            i += 4;
+        }
+        for (; i < stripeLength; i++) {
+            h ^= (stripe[i] & 0xFF) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+
+        engineReset();
+        return ByteBuffer.allocate(Long.BYTES).putLong(h).array();
+    }
+
+    @Override
+    protected void engineReset() {
+        v1 = P1 + P2;
+        v2 = P2;
+        v3 = 0;
+        v4 = -P1;
+        total = 0;
+        stripeLength = 0;
+    }
+
+    private void consume(byte[] input, int offset) {
+        v1 = round(v1, (long) LONG_LE.get(input, offset));
+        v2 = round(v2, (long) LONG_LE.get(input, offset + 8));
+        v3 = round(v3, (long) LONG_LE.get(input, offset + 16));
+        v4 = round(v4, (long) LONG_LE.get(input, offset + 24));
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * P2, 31) * P1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        return (acc ^ round(0, value)) * P1 + P4;
+    }
+}
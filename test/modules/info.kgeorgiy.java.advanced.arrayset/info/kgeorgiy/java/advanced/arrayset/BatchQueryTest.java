@@ -0,0 +1,147 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@code containsEach}, {@code floorAll}, {@code ceilingAll} and {@code rankAll}:
+ * every answer must match the single-element query of {@link TreeSet}, for batches sorted
+ * in the order of the set and for unsorted ones, on the set and on its views.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BatchQueryTest extends BaseSetTest {
+    private static final int[] SIZES = {0, 1, 2, 10, 1000, 50_000};
+    private static final int BATCH = 1000;
+
+    private final Random random = new Random(6_234_509_823_450_982L);
+
+    public BatchQueryTest() {
+    }
+
+    @Test
+    public void test01_containsEach() {
+        test("containsEach", (view, items) -> {
+            final BitSet expected = new BitSet(items.length);
+            for (int i = 0; i < items.length; i++) {
+                if (view.model().contains(items[i])) {
+                    expected.set(i);
+                }
+            }
+            return expected;
+        });
+    }
+
+    @Test
+    public void test02_floorAll() {
+        test("floorAll", (view, items) -> Arrays.stream(items).map(view.model()::floor).toArray(Integer[]::new));
+    }
+
+    @Test
+    public void test03_ceilingAll() {
+        test("ceilingAll", (view, items) -> Arrays.stream(items).map(view.model()::ceiling).toArray(Integer[]::new));
+    }
+
+    @Test
+    public void test04_rankAll() {
+        test("rankAll", (view, items) -> Arrays.stream(items).mapToInt(item -> rank(view, item)).toArray());
+    }
+
+    private void test(final String method, final BiFunction<View, Integer[], Object> expected) {
+        for (final NamedComparator comparator : NAMED_COMPARATORS) {
+            for (final int size : SIZES) {
+                final List<Integer> elements = random.ints(size, -size * 2, size * 2 + 1).boxed().toList();
+                for (final View view : views(random, elements, comparator)) {
+                    for (final Integer[] items : batches(view.model(), size)) {
+                        final String context = String.format("%s of %d items, %s of %d elements, %s",
+                                method, items.length, view.name(), size, comparator);
+                        final Object actual = invoke(view.tested(), method,
+                                new Class<?>[]{Object[].class}, (Object) items);
+                        if (actual instanceof Object[] array) {
+                            Assert.assertArrayEquals(context, (Object[]) expected.apply(view, items), array);
+                        } else if (actual instanceof int[] array) {
+                            Assert.assertArrayEquals(context, (int[]) expected.apply(view, items), array);
+                        } else {
+                            Assert.assertEquals(context, expected.apply(view, items), actual);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // empty, sorted in the order of the set with repeats, dense around every element, and unsorted
+    private List<Integer[]> batches(final NavigableSet<Integer> model, final int size) {
+        final List<Integer> items = random.ints(BATCH, -size * 2 - 1, size * 2 + 2).boxed()
+                .collect(Collectors.toList());
+        final List<Integer[]> batches = new ArrayList<>();
+        batches.add(new Integer[0]);
+        batches.add(items.toArray(Integer[]::new));
+        items.sort(model.comparator());
+        batches.add(items.toArray(Integer[]::new));
+        batches.add(model.stream().flatMap(e -> Stream.of(e - 1, e, e + 1)).sorted(model.comparator())
+                .toArray(Integer[]::new));
+        return batches;
+    }
+
+    // number of elements of the view less than item
+    static int rank(final View view, final Integer item) {
+        final int found = Collections.binarySearch(view.elements(), item, view.model().comparator());
+        return found < 0 ? -found - 1 : found;
+    }
+
+    /**
+     * A view of the tested set with the same view of the model and its elements in iteration order.
+     */
+    record View(String name, NavigableSet<Integer> model, NavigableSet<Integer> tested, List<Integer> elements) {
+        View(final String name, final NavigableSet<Integer> model, final NavigableSet<Integer> tested) {
+            this(name, model, tested, List.copyOf(model));
+        }
+    }
+
+    // the whole set, its descending set and range views between random elements
+    static List<View> views(final Random random, final List<Integer> elements, final NamedComparator comparator) {
+        final NavigableSet<Integer> model = new TreeSet<>(comparator);
+        model.addAll(elements);
+        final NavigableSet<Integer> tested = set(elements, comparator);
+        final List<View> views = new ArrayList<>(List.of(
+                new View("set", model, tested),
+                new View("descendingSet", model.descendingSet(), tested.descendingSet())
+        ));
+        if (!model.isEmpty()) {
+            final List<Integer> sorted = new ArrayList<>(model);
+            final Integer from = sorted.get(random.nextInt(sorted.size()));
+            final Integer to = sorted.get(sorted.indexOf(from) + random.nextInt(sorted.size() - sorted.indexOf(from)));
+            views.add(new View("subSet", model.subSet(from, true, to, false), tested.subSet(from, true, to, false)));
+            views.add(new View("descending subSet", model.subSet(from, false, to, true).descendingSet(),
+                    tested.subSet(from, false, to, true).descendingSet()));
+            views.add(new View("tailSet", model.tailSet(from, true), tested.tailSet(from, true)));
+        }
+        return views;
+    }
+
+    static Object invoke(
+            final NavigableSet<Integer> set,
+            final String method,
+            final Class<?>[] types,
+            final Object... args
+    ) {
+        try {
+            return loadClass().getMethod(method, types).invoke(set, args);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new AssertionError("Error in " + method, e.getCause());
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot find method " + method + " of " + loadClass(), e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for construction from a collection: sorted, nearly sorted and unsorted input, below and above
+ * the size where sorting goes parallel, must give exactly the elements a {@link TreeSet} copy keeps,
+ * that is the first of every group of equal ones.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ConstructionTest extends BaseSetTest {
+    private static final int[] SIZES = {0, 1, 2, 3, 100, 100_000};
+
+    private final Random random = new Random(9_823_405_982_340_598L);
+
+    public ConstructionTest() {
+    }
+
+    @Test
+    public void test01_shapes() {
+        for (final NamedComparator comparator : NAMED_COMPARATORS) {
+            for (final int size : SIZES) {
+                final List<Integer> sorted = random.ints(size, -size, size + 1).sorted().boxed()
+                        .collect(Collectors.toList());
+                sorted.sort(comparator);
+                final List<Integer> nearlySorted = new ArrayList<>(sorted);
+                for (int i = 0; i < size / 100 + 1 && size > 1; i++) {
+                    Collections.swap(nearlySorted, random.nextInt(size), random.nextInt(size));
+                }
+                final List<Integer> reversed = new ArrayList<>(sorted);
+                Collections.reverse(reversed);
+                final List<Integer> shuffled = new ArrayList<>(sorted);
+                Collections.shuffle(shuffled, random);
+                final List<Integer> repeated = sorted.stream().flatMap(e -> IntStream.range(0, 3).mapToObj(i -> e))
+                        .collect(Collectors.toList());
+
+                check("sorted", sorted, comparator);
+                check("nearly sorted", nearlySorted, comparator);
+                check("reversed", reversed, comparator);
+                check("shuffled", shuffled, comparator);
+                check("repeated", repeated, comparator);
+            }
+        }
+    }
+
+    @Test
+    public void test02_naturalOrder() {
+        final List<Integer> elements = random.ints(100_000, 0, 50_000).boxed().collect(Collectors.toList());
+        assertEq("natural order", treeSet(elements), set(elements));
+        elements.sort(null);
+        assertEq("natural order, sorted", treeSet(elements), set(elements));
+    }
+
+    @Test
+    public void test03_singleElement() {
+        final List<Integer> nullElement = Collections.singletonList(null);
+        try {
+            set(nullElement);
+            Assert.fail("Null element accepted in natural order");
+        } catch (final AssertionError e) {
+            Assert.assertSame("null element", NullPointerException.class, e.getCause().getCause().getClass());
+        }
+    }
+
+    private static void check(final String context, final List<Integer> elements, final NamedComparator comparator) {
+        assertEq(String.format("%s %d elements, %s", context, elements.size(), comparator),
+                treeSet(elements, comparator), set(elements, comparator));
+    }
+
+    private static <S extends SortedSet<Integer>> S treeSet(
+            final List<Integer> elements,
+            final Comparator<Integer> comparator
+    ) {
+        final TreeSet<Integer> set = new TreeSet<>(comparator);
+        set.addAll(elements);
+        @SuppressWarnings("unchecked")
+        final S result = (S) set;
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import info.kgeorgiy.java.advanced.base.BaseTest;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@code MappedStringSet} from the package of the tested set: strings with long shared prefixes
+ * and characters of every UTF-8 length are saved, mapped back and compared with {@link TreeSet}.
+ * Sizes around multiples of 16 cover partial and whole blocks of front-coded strings.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MappedStringSetTest extends BaseTest {
+    private static final int[] SIZES = {0, 1, 2, 15, 16, 17, 33, 1000, 50_000};
+    private static final int QUERIES = 300;
+    // one, two, three and four UTF-8 bytes
+    private static final int[] CODE_POINTS = {'a', 'b', 'z', 0x44f, 0x430, 0x4e2d, 0xfffd, 0x1f600, 0x10348};
+
+    private static Path directory;
+    private final Random random = new Random(8_234_502_983_457_234L);
+
+    public MappedStringSetTest() {
+    }
+
+    @BeforeClass
+    public static void createDirectory() throws IOException {
+        directory = Files.createTempDirectory(MappedStringSetTest.class.getSimpleName());
+    }
+
+    @AfterClass
+    public static void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void test01_ascii() throws IOException {
+        for (final int size : SIZES) {
+            test("ascii", random.ints(size, 0, size * 2 + 1).mapToObj(i -> "item-" + i).toList());
+        }
+    }
+
+    @Test
+    public void test02_unicode() throws IOException {
+        for (final int size : SIZES) {
+            test("unicode", Stream.generate(this::string).limit(size).toList());
+        }
+    }
+
+    @Test
+    public void test03_sharedPrefixes() throws IOException {
+        final String prefix = "x".repeat(300) + new String(Character.toChars(0x1f600));
+        test("shared prefixes", IntStream.range(0, 2000)
+                .mapToObj(i -> prefix.repeat(i % 3) + Integer.toBinaryString(i))
+                .collect(Collectors.toList()));
+        test("empty string", List.of("", "a", "aa", "ab", "b"));
+    }
+
+    @Test
+    public void test04_invalid() throws IOException {
+        final Path file = directory.resolve("invalid.set");
+        save(file, List.of("kept"));
+        try {
+            save(file, List.of("a", "b\ud800c"));
+            Assert.fail("Unpaired surrogate was saved");
+        } catch (final IOException expected) {
+            // expected
+        }
+        Assert.assertEquals("file after failed save", List.of("kept"), new ArrayList<>(map(file)));
+
+        final Path garbage = directory.resolve("garbage.set");
+        for (final byte[] content : List.of(new byte[0], new byte[12], new byte[100])) {
+            Files.write(garbage, content);
+            try {
+                map(garbage);
+                Assert.fail("Garbage file of " + content.length + " bytes was mapped");
+            } catch (final IOException expected) {
+                // expected
+            }
+        }
+    }
+
+    private void test(final String context, final List<String> strings) throws IOException {
+        final Path file = directory.resolve("strings.set");
+        save(file, strings);
+        final NavigableSet<String> model = new TreeSet<>(strings);
+        final List<String> queries = new ArrayList<>(List.of("", "\uffff", "item-"));
+        queries.addAll(strings.stream().limit(QUERIES).toList());
+        queries.addAll(strings.stream().limit(QUERIES).map(s -> s + "a").toList());
+        queries.addAll(strings.stream().limit(QUERIES).map(s -> s.substring(0, s.length() / 2)).toList());
+        queries.addAll(Stream.generate(this::string).limit(QUERIES).toList());
+        PrimitiveSetTest.check(random, context + " of " + model.size(), model, map(file), queries, 2);
+    }
+
+    private String string() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = random.nextInt(8); i >= 0; i--) {
+            sb.appendCodePoint(CODE_POINTS[random.nextInt(CODE_POINTS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void save(final Path file, final Collection<String> strings) throws IOException {
+        invoke("save", new Class<?>[]{Path.class, Collection.class}, file, strings);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableSet<String> map(final Path file) throws IOException {
+        return (NavigableSet<String>) invoke("map", new Class<?>[]{Path.class}, file);
+    }
+
+    private static Object invoke(final String name, final Class<?>[] types, final Object... args) throws IOException {
+        try {
+            return PrimitiveSetTest.setClass("MappedStringSet").getMethod(name, types).invoke(null, args);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new AssertionError("Error in " + name, e.getCause());
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot call " + name, e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for {@code MutableArraySet} from the package of the tested set: random sequences of updates
+ * through the set, its views and its iterators are applied to a {@link TreeSet} too, and every answer
+ * is compared. Enough updates are made for pending changes to be merged into the array many times.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MutableSetTest extends BaseSetTest {
+    private static final int OPERATIONS = 30_000;
+    private static final int CHECK_PERIOD = 1000;
+
+    private final Random random = new Random(5_823_409_823_409_123L);
+
+    public MutableSetTest() {
+    }
+
+    @Test
+    public void test01_naturalOrder() {
+        testOperations(null, 3000);
+    }
+
+    @Test
+    public void test02_comparators() {
+        for (final NamedComparator comparator : NAMED_COMPARATORS) {
+            testOperations(comparator, 3000);
+        }
+    }
+
+    @Test
+    public void test03_denseUpdates() {
+        testOperations(NAMED_COMPARATORS.get(0), 100);
+    }
+
+    @Test
+    public void test04_initialElements() {
+        for (final NamedComparator comparator : NAMED_COMPARATORS) {
+            final List<Integer> elements = random.ints(5000, 0, 10_000).boxed().collect(Collectors.toList());
+            final NavigableSet<Integer> model = new TreeSet<>(comparator);
+            model.addAll(elements);
+            final NavigableSet<Integer> tested = create(elements, comparator);
+            check("initial " + comparator, model, tested, 10_000);
+            run(comparator, model, tested, 10_000);
+        }
+    }
+
+    @Test
+    public void test05_writesAfterHasNext() {
+        final List<Integer> evens = IntStream.range(0, 50).map(i -> i * 2).boxed().toList();
+        // elements in the array and elements pending insertion
+        final NavigableSet<Integer> merged = create(evens, null);
+        final NavigableSet<Integer> pending = create(List.of(), null);
+        pending.addAll(evens);
+        for (final NavigableSet<Integer> set : List.of(merged, pending)) {
+            final Iterator<Integer> iterator = set.iterator();
+            Assert.assertEquals(0, (int) iterator.next());
+            Assert.assertTrue(iterator.hasNext());
+            set.remove(2);
+            Assert.assertEquals("removed after hasNext", 4, (int) iterator.next());
+            Assert.assertTrue(iterator.hasNext());
+            set.add(5);
+            Assert.assertEquals("added after hasNext", 5, (int) iterator.next());
+            Assert.assertTrue(iterator.hasNext());
+            set.remove(6);
+            set.remove(8);
+            Assert.assertEquals("removed after hasNext", 10, (int) iterator.next());
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+            set.add(100);
+            Assert.assertTrue("added at the end", iterator.hasNext());
+            Assert.assertEquals("added at the end", 100, (int) iterator.next());
+
+            final Iterator<Integer> descending = set.descendingIterator();
+            Assert.assertEquals(100, (int) descending.next());
+            Assert.assertTrue(descending.hasNext());
+            set.remove(98);
+            set.add(99);
+            Assert.assertEquals("descending after hasNext", 99, (int) descending.next());
+        }
+    }
+
+    private void testOperations(final Comparator<Integer> comparator, final int range) {
+        run(comparator, new TreeSet<>(comparator), create(List.of(), comparator), range);
+    }
+
+    private void run(
+            final Comparator<Integer> comparator,
+            final NavigableSet<Integer> model,
+            final NavigableSet<Integer> tested,
+            final int range
+    ) {
+        for (int i = 0; i < OPERATIONS; i++) {
+            final Integer value = random.nextInt(range);
+            final String context = comparator + ", operation " + i + ", value " + value;
+            switch (random.nextInt(12)) {
+                case 0, 1, 2 -> Assert.assertEquals("add " + context, model.add(value), tested.add(value));
+                case 3, 4 -> Assert.assertEquals("remove " + context, model.remove(value), tested.remove(value));
+                case 5 -> query(context, model, tested, value);
+                case 6 -> {
+                    Assert.assertEquals("pollFirst " + context, model.pollFirst(), tested.pollFirst());
+                    Assert.assertEquals("pollLast " + context, model.pollLast(), tested.pollLast());
+                }
+                case 7 -> {
+                    final List<Integer> values = random.ints(50, 0, range).boxed().collect(Collectors.toList());
+                    Assert.assertEquals("addAll " + context, model.addAll(values), tested.addAll(values));
+                }
+                case 8 -> updateView(context, comparator, model, tested, range);
+                case 9 -> {
+                    if (random.nextInt(50) == 0) {
+                        compact(tested);
+                    }
+                }
+                case 10 -> {
+                    if (random.nextInt(100) == 0) {
+                        removeEvery(random.nextInt(5) + 2, model, tested);
+                    }
+                }
+                default -> Assert.assertEquals("contains " + context, model.contains(value), tested.contains(value));
+            }
+            if (i % CHECK_PERIOD == 0) {
+                check(context, model, tested, range);
+            }
+        }
+        check(comparator + " at the end", model, tested, range);
+        tested.clear();
+        model.clear();
+        check(comparator + " after clear", model, tested, range);
+    }
+
+    private void updateView(
+            final String context,
+            final Comparator<Integer> comparator,
+            final NavigableSet<Integer> model,
+            final NavigableSet<Integer> tested,
+            final int range
+    ) {
+        final Integer a = random.nextInt(range);
+        final Integer b = random.nextInt(range);
+        final Comparator<Integer> order = comparator == null ? Comparator.naturalOrder() : comparator;
+        final Integer from = order.compare(a, b) <= 0 ? a : b;
+        final Integer to = order.compare(a, b) <= 0 ? b : a;
+        final boolean descending = random.nextBoolean();
+        final NavigableSet<Integer> modelView = view(model.subSet(from, true, to, true), descending);
+        final NavigableSet<Integer> testedView = view(tested.subSet(from, true, to, true), descending);
+        final String where = "view [" + from + ", " + to + "] " + context;
+        final Integer value = random.nextInt(range);
+        if (order.compare(from, value) <= 0 && order.compare(value, to) <= 0) {
+            Assert.assertEquals("view add " + where, modelView.add(value), testedView.add(value));
+        }
+        Assert.assertEquals("view remove " + where, modelView.remove(value), testedView.remove(value));
+        Assert.assertEquals("view pollFirst " + where, modelView.pollFirst(), testedView.pollFirst());
+        if (random.nextInt(20) == 0) {
+            modelView.clear();
+            testedView.clear();
+        }
+        check(where, modelView, testedView, range);
+    }
+
+    private static NavigableSet<Integer> view(final NavigableSet<Integer> set, final boolean descending) {
+        return descending ? set.descendingSet() : set;
+    }
+
+    private static void removeEvery(final int step, final NavigableSet<Integer> model, final NavigableSet<Integer> tested) {
+        final Iterator<Integer> modelIterator = model.iterator();
+        final Iterator<Integer> testedIterator = tested.iterator();
+        for (int i = 0; modelIterator.hasNext(); i++) {
+            Assert.assertTrue("iterator hasNext", testedIterator.hasNext());
+            Assert.assertEquals("iterator next", modelIterator.next(), testedIterator.next());
+            if (i % step == 0) {
+                modelIterator.remove();
+                testedIterator.remove();
+            }
+        }
+        Assert.assertFalse("iterator hasNext at the end", testedIterator.hasNext());
+    }
+
+    private void check(
+            final String context,
+            final NavigableSet<Integer> model,
+            final NavigableSet<Integer> tested,
+            final int range
+    ) {
+        Assert.assertEquals("elements " + context, new ArrayList<>(model), new ArrayList<>(tested));
+        Assert.assertEquals("size " + context, model.size(), tested.size());
+        Assert.assertEquals("isEmpty " + context, model.isEmpty(), tested.isEmpty());
+        Assert.assertEquals("descending " + context,
+                new ArrayList<>(model.descendingSet()), new ArrayList<>(tested.descendingSet()));
+        if (!model.isEmpty()) {
+            Assert.assertEquals("first " + context, model.first(), tested.first());
+            Assert.assertEquals("last " + context, model.last(), tested.last());
+        }
+        for (int i = 0; i < 20; i++) {
+            query(context, model, tested, random.nextInt(range));
+        }
+    }
+
+    private static void query(
+            final String context,
+            final NavigableSet<Integer> model,
+            final NavigableSet<Integer> tested,
+            final Integer value
+    ) {
+        final String where = context + " for " + value;
+        Assert.assertEquals("contains " + where, model.contains(value), tested.contains(value));
+        Assert.assertEquals("lower " + where, model.lower(value), tested.lower(value));
+        Assert.assertEquals("floor " + where, model.floor(value), tested.floor(value));
+        Assert.assertEquals("ceiling " + where, model.ceiling(value), tested.ceiling(value));
+        Assert.assertEquals("higher " + where, model.higher(value), tested.higher(value));
+    }
+
+    private static void compact(final NavigableSet<Integer> tested) {
+        try {
+            final Method compact = tested.getClass().getMethod("compact");
+            compact.invoke(tested);
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot call compact", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableSet<Integer> create(final Collection<Integer> elements, final Comparator<Integer> comparator) {
+        try {
+            return (NavigableSet<Integer>) Class.forName(loadClass().getPackageName() + ".MutableArraySet")
+                    .getConstructor(Collection.class, Comparator.class)
+                    .newInstance(elements, comparator);
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot create MutableArraySet", e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import info.kgeorgiy.java.advanced.base.BaseTest;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@code OffHeapLongArraySet} from the package of the tested set: sets built in direct memory,
+ * saved to a file and mapped back, or saved straight from a stream of keys, are compared with {@link TreeSet}.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class OffHeapSetTest extends BaseTest {
+    private static final int[] SIZES = {0, 1, 2, 100, 10_000};
+    private static final int QUERIES = 300;
+
+    private static Path directory;
+    private final Random random = new Random(2_384_572_934_857_234L);
+
+    public OffHeapSetTest() {
+    }
+
+    @BeforeClass
+    public static void createDirectory() throws IOException {
+        directory = Files.createTempDirectory(OffHeapSetTest.class.getSimpleName());
+    }
+
+    @AfterClass
+    public static void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void test01_direct() throws IOException {
+        for (final int size : SIZES) {
+            final long[] data = random.longs(size, -size - 1, size + 1).toArray();
+            check("direct", data, of(data));
+        }
+    }
+
+    @Test
+    public void test02_saved() throws IOException {
+        for (final int size : SIZES) {
+            final long[] data = random.longs(size).toArray();
+            final Path file = directory.resolve("saved-" + size + ".set");
+            invoke(of(data), "save", Path.class, file);
+            check("mapped", data, map(file));
+        }
+    }
+
+    @Test
+    public void test03_streamed() throws IOException {
+        final Path file = directory.resolve("streamed.set");
+        final int size = 1_000_000;
+        invoke(null, "save", Path.class, file, LongStream.class, LongStream.range(0, size).map(i -> i * 3 - size));
+        Assert.assertEquals("file size", 16 + size * 8L, Files.size(file));
+        final NavigableSet<Long> mapped = map(file);
+        Assert.assertEquals("size", size, mapped.size());
+        for (int i = 0; i < QUERIES; i++) {
+            final long query = random.nextInt(size * 3 - 2) - size;
+            final long expected = query + Math.floorMod(-size - query, 3);
+            Assert.assertEquals("ceiling of " + query, expected, (long) mapped.ceiling(query));
+            Assert.assertEquals("contains " + query, query == expected, mapped.contains(query));
+        }
+        // a newer save replaces the mapped file, the old mapping keeps its keys
+        invoke(null, "save", Path.class, file, LongStream.class, LongStream.of(1, 2, 3));
+        Assert.assertEquals("remapped", List.of(1L, 2L, 3L), new ArrayList<>(map(file)));
+        Assert.assertEquals("old mapping", size, mapped.size());
+        Assert.assertEquals("old mapping", -size, (long) mapped.first());
+    }
+
+    @Test
+    public void test04_invalid() throws IOException {
+        final Path file = directory.resolve("invalid.set");
+        invoke(null, "save", Path.class, file, LongStream.class, LongStream.of(5, 7));
+        for (final long[] keys : List.of(new long[]{1, 1}, new long[]{3, 2}, new long[]{0, 10, -1})) {
+            try {
+                invoke(null, "save", Path.class, file, LongStream.class, LongStream.of(keys));
+                Assert.fail("Keys are not strictly increasing: " + Arrays.toString(keys));
+            } catch (final IllegalArgumentException expected) {
+                // expected
+            }
+        }
+        Assert.assertEquals("file after failed saves", List.of(5L, 7L), new ArrayList<>(map(file)));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals("temporary files", List.of(),
+                    files.filter(f -> f.toString().endsWith(".tmp")).toList());
+        }
+
+        final Path garbage = directory.resolve("garbage.set");
+        Files.write(garbage, new byte[20]);
+        try {
+            map(garbage);
+            Assert.fail("Garbage file was mapped");
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+
+    private void check(final String context, final long[] data, final NavigableSet<Long> tested) {
+        final NavigableSet<Long> model = Arrays.stream(data).boxed().collect(Collectors.toCollection(TreeSet::new));
+        final List<Long> queries = new ArrayList<>(List.of(Long.MIN_VALUE, Long.MAX_VALUE, 0L));
+        queries.addAll(random.longs(QUERIES, -data.length - 1, data.length + 1).boxed().toList());
+        queries.addAll(Arrays.stream(data).limit(QUERIES).boxed().toList());
+        PrimitiveSetTest.check(random, context + " of " + model.size(), model, tested, queries, 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableSet<Long> of(final long[] data) throws IOException {
+        return (NavigableSet<Long>) invoke(null, "of", long[].class, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableSet<Long> map(final Path file) throws IOException {
+        return (NavigableSet<Long>) invoke(null, "map", Path.class, file);
+    }
+
+    // static methods are called with target == null; checked exceptions of the method are rethrown
+    private static Object invoke(final Object target, final String name, final Object... typesAndArgs)
+            throws IOException {
+        final Class<?>[] types = new Class<?>[typesAndArgs.length / 2];
+        final Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = (Class<?>) typesAndArgs[2 * i];
+            args[i] = typesAndArgs[2 * i + 1];
+        }
+        try {
+            final Method method = PrimitiveSetTest.setClass("OffHeapLongArraySet").getMethod(name, types);
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            } else if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new AssertionError("Error in " + name, e.getCause());
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot call " + name, e);
+        }
+    }
+}
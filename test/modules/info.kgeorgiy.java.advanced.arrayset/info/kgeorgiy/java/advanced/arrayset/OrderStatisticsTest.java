@@ -0,0 +1,127 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+
+/**
+ * Tests for {@code rank}, {@code select} and {@code count}: they must match the position of an element
+ * in iteration order and the size of the corresponding {@link TreeSet} view, on the set and on its views.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class OrderStatisticsTest extends BaseSetTest {
+    private static final int[] SIZES = {0, 1, 2, 10, 1000};
+    private static final int QUERIES = 200;
+
+    private final Random random = new Random(1_209_348_572_340_985L);
+
+    public OrderStatisticsTest() {
+    }
+
+    @Test
+    public void test01_rank() {
+        test((view, size) -> {
+            for (final Integer item : queries(size)) {
+                Assert.assertEquals("rank of " + item + " in " + view.name(),
+                        BatchQueryTest.rank(view, item), rank(view, item));
+            }
+        });
+    }
+
+    @Test
+    public void test02_select() {
+        test((view, size) -> {
+            for (int k = 0; k < view.elements().size(); k++) {
+                Assert.assertEquals("select " + k + " in " + view.name(), view.elements().get(k), select(view, k));
+            }
+            for (final int k : List.of(-1, view.elements().size(), Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                try {
+                    select(view, k);
+                    Assert.fail("select " + k + " of " + view.elements().size() + " elements in " + view.name());
+                } catch (final IndexOutOfBoundsException expected) {
+                    // expected
+                }
+            }
+        });
+    }
+
+    @Test
+    public void test03_count() {
+        test((view, size) -> {
+            final Comparator<? super Integer> comparator = view.model().comparator();
+            final List<Integer> queries = queries(size);
+            for (int i = 0; i + 1 < queries.size(); i += 2) {
+                final Integer a = queries.get(i);
+                final Integer b = queries.get(i + 1);
+                final Integer from = comparator.compare(a, b) <= 0 ? a : b;
+                final Integer to = comparator.compare(a, b) <= 0 ? b : a;
+                for (final boolean fromInclusive : List.of(false, true)) {
+                    for (final boolean toInclusive : List.of(false, true)) {
+                        final String context = String.format("count(%d, %b, %d, %b) in %s",
+                                from, fromInclusive, to, toInclusive, view.name());
+                        final long expected = view.elements().stream()
+                                .filter(e -> {
+                                    final int low = comparator.compare(from, e);
+                                    final int high = comparator.compare(e, to);
+                                    return (fromInclusive ? low <= 0 : low < 0) && (toInclusive ? high <= 0 : high < 0);
+                                })
+                                .count();
+                        Assert.assertEquals(context, expected, count(view, from, fromInclusive, to, toInclusive));
+                    }
+                }
+                if (comparator.compare(from, to) < 0) {
+                    try {
+                        count(view, to, true, from, true);
+                        Assert.fail("Reversed bounds " + to + " and " + from + " in " + view.name());
+                    } catch (final IllegalArgumentException expected) {
+                        // expected
+                    }
+                }
+            }
+        });
+    }
+
+    private void test(final ViewTest test) {
+        for (final NamedComparator comparator : NAMED_COMPARATORS) {
+            for (final int size : SIZES) {
+                final List<Integer> elements = random.ints(size, -size * 2, size * 2 + 1).boxed().toList();
+                for (final BatchQueryTest.View view : BatchQueryTest.views(random, elements, comparator)) {
+                    test.test(view, size);
+                }
+            }
+        }
+    }
+
+    private List<Integer> queries(final int size) {
+        final List<Integer> queries = new ArrayList<>(List.of(Integer.MIN_VALUE, Integer.MAX_VALUE, 0));
+        random.ints(QUERIES, -size * 2 - 1, size * 2 + 2).forEach(queries::add);
+        return queries;
+    }
+
+    private static int rank(final BatchQueryTest.View view, final Integer item) {
+        return (Integer) BatchQueryTest.invoke(view.tested(), "rank", new Class<?>[]{Object.class}, item);
+    }
+
+    private static Integer select(final BatchQueryTest.View view, final int k) {
+        return (Integer) BatchQueryTest.invoke(view.tested(), "select", new Class<?>[]{int.class}, k);
+    }
+
+    private static int count(
+            final BatchQueryTest.View view,
+            final Integer from,
+            final boolean fromInclusive,
+            final Integer to,
+            final boolean toInclusive
+    ) {
+        return (Integer) BatchQueryTest.invoke(view.tested(), "count",
+                new Class<?>[]{Object.class, boolean.class, Object.class, boolean.class},
+                from, fromInclusive, to, toInclusive);
+    }
+
+    private interface ViewTest {
+        void test(BatchQueryTest.View view, int size);
+    }
+}
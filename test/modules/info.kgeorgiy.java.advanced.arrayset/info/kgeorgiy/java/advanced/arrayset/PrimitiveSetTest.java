@@ -0,0 +1,121 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import info.kgeorgiy.java.advanced.base.BaseTest;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@code IntArraySet}, {@code LongArraySet} and {@code DoubleArraySet} from the package
+ * of the tested set: every {@link NavigableSet} query of the set and of its views is compared with {@link TreeSet}.
+ * Sizes around powers of 16 cover every level of the optional search index.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PrimitiveSetTest extends BaseTest {
+    private static final int[] SIZES = {0, 1, 2, 15, 16, 17, 255, 256, 257, 4095, 4097, 70_000};
+    private static final int QUERIES = 300;
+
+    private final Random random = new Random(7_234_598_234_509_823L);
+
+    public PrimitiveSetTest() {
+    }
+
+    @Test
+    public void test01_long() {
+        testSets("LongArraySet", size -> random.longs(size, -size - 1, size + 1).boxed().collect(Collectors.toList()),
+                List.of(Long.MIN_VALUE, Long.MAX_VALUE, 0L));
+    }
+
+    @Test
+    public void test02_int() {
+        testSets("IntArraySet", size -> random.ints(size, -size - 1, size + 1).boxed().collect(Collectors.toList()),
+                List.of(Integer.MIN_VALUE, Integer.MAX_VALUE, 0));
+    }
+
+    @Test
+    public void test03_double() {
+        testSets("DoubleArraySet", size -> random.ints(size, -size - 1, size + 1).mapToObj(i -> i / 2.0)
+                        .collect(Collectors.toList()),
+                List.of(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -0.0, 0.0, Double.NaN));
+    }
+
+    private <T extends Comparable<T>> void testSets(
+            final String name,
+            final Function<Integer, List<T>> elements,
+            final List<T> special
+    ) {
+        final Class<?> type = setClass(name);
+        for (final int size : SIZES) {
+            final List<T> data = elements.apply(size);
+            final NavigableSet<T> model = new TreeSet<>(data);
+            final List<T> queries = new ArrayList<>(special);
+            queries.addAll(elements.apply(QUERIES));
+            for (final NavigableSet<T> tested : sets(type, data)) {
+                check(random, name + " of " + data.size(), model, tested, queries, 2);
+            }
+        }
+    }
+
+    // the plain set and, if the class has one, the set with the search index
+    @SuppressWarnings("unchecked")
+    private static <T> List<NavigableSet<T>> sets(final Class<?> type, final List<T> data) {
+        final List<NavigableSet<T>> sets = new ArrayList<>();
+        try {
+            sets.add((NavigableSet<T>) type.getConstructor(Collection.class).newInstance(data));
+            try {
+                sets.add((NavigableSet<T>) type.getConstructor(Collection.class, boolean.class)
+                        .newInstance(data, true));
+            } catch (final NoSuchMethodException ignored) {
+                // no search index
+            }
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot create " + type.getSimpleName(), e);
+        }
+        return sets;
+    }
+
+    // compares elements, navigation queries and, down to depth, descending and range views
+    static <T> void check(
+            final Random random,
+            final String context,
+            final NavigableSet<T> model,
+            final NavigableSet<T> tested,
+            final List<T> queries,
+            final int depth
+    ) {
+        Assert.assertEquals("elements of " + context, new ArrayList<>(model), new ArrayList<>(tested));
+        Assert.assertEquals("size of " + context, model.size(), tested.size());
+        for (final T query : queries) {
+            final String where = context + " for " + query;
+            Assert.assertEquals("contains " + where, model.contains(query), tested.contains(query));
+            Assert.assertEquals("lower " + where, model.lower(query), tested.lower(query));
+            Assert.assertEquals("floor " + where, model.floor(query), tested.floor(query));
+            Assert.assertEquals("ceiling " + where, model.ceiling(query), tested.ceiling(query));
+            Assert.assertEquals("higher " + where, model.higher(query), tested.higher(query));
+        }
+        if (depth == 0 || model.isEmpty()) {
+            return;
+        }
+        check(random, "descending " + context, model.descendingSet(), tested.descendingSet(), queries, depth - 1);
+        final List<T> elements = new ArrayList<>(model);
+        final T from = elements.get(random.nextInt(elements.size()));
+        final T to = elements.get(elements.size() - 1 - random.nextInt(elements.size() - elements.indexOf(from)));
+        check(random, "subSet of " + context, model.subSet(from, false, to, true),
+                tested.subSet(from, false, to, true), queries, depth - 1);
+        check(random, "tailSet of " + context, model.tailSet(from, true), tested.tailSet(from, true),
+                queries, depth - 1);
+    }
+
+    static Class<?> setClass(final String name) {
+        try {
+            return Class.forName(loadClass().getPackageName() + "." + name);
+        } catch (final ClassNotFoundException e) {
+            throw new AssertionError("Cannot find " + name, e);
+        }
+    }
+}
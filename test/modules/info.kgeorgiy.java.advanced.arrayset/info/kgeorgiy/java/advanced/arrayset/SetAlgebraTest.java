@@ -0,0 +1,134 @@
+package info.kgeorgiy.java.advanced.arrayset;
+
+import net.java.quickcheck.collection.Pair;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static net.java.quickcheck.generator.CombinedGenerators.lists;
+import static net.java.quickcheck.generator.CombinedGeneratorsIterables.somePairs;
+import static net.java.quickcheck.generator.PrimitiveGenerators.integers;
+
+/**
+ * Tests for {@code union}, {@code intersection}, {@code difference} and their parallel versions:
+ * results are compared with {@link TreeSet}, elements of the first set win over equal elements of the second.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SetAlgebraTest extends BaseSetTest {
+    private static final int LARGE = 100_000;
+
+    public SetAlgebraTest() {
+    }
+
+    @Test
+    public void test01_union() {
+        testOperation("union", SetAlgebraTest::union);
+    }
+
+    @Test
+    public void test02_intersection() {
+        testOperation("intersection", SetAlgebraTest::intersection);
+    }
+
+    @Test
+    public void test03_difference() {
+        testOperation("difference", SetAlgebraTest::difference);
+    }
+
+    @Test
+    public void test04_parallel() {
+        final Random random = new Random(3_409_823_409_823_401L);
+        final List<Integer> first = random.ints(LARGE, 0, LARGE * 3).boxed().collect(Collectors.toList());
+        final List<Integer> second = random.ints(LARGE, 0, LARGE * 3).boxed().collect(Collectors.toList());
+        for (final NamedComparator comparator : List.of(NAMED_COMPARATORS.get(0), NAMED_COMPARATORS.get(2))) {
+            checkOperation("parallelUnion", SetAlgebraTest::union, first, second, comparator);
+            checkOperation("parallelIntersection", SetAlgebraTest::intersection,
+                    first, second, comparator);
+            checkOperation("parallelDifference", SetAlgebraTest::difference, first, second, comparator);
+        }
+    }
+
+    @Test
+    public void test05_skewed() {
+        final List<Integer> large = IntStream.range(0, LARGE).map(i -> i * 2).boxed().collect(Collectors.toList());
+        final List<Integer> small = List.of(-1, 0, 7, 1000, 1001, LARGE, LARGE * 2 - 2, LARGE * 2);
+        final NamedComparator natural = NAMED_COMPARATORS.get(0);
+        for (final String name : List.of("union", "intersection", "difference")) {
+            final BiFunction<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>> model = switch (name) {
+                case "union" -> SetAlgebraTest::union;
+                case "intersection" -> SetAlgebraTest::intersection;
+                default -> SetAlgebraTest::difference;
+            };
+            checkOperation(name, model, small, large, natural);
+            checkOperation(name, model, large, small, natural);
+        }
+    }
+
+    private void testOperation(
+            final String name,
+            final BiFunction<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>> model
+    ) {
+        for (final Pair<List<Integer>, List<Integer>> lists : somePairs(lists(integers(-100, 100)), lists(integers(-100, 100)))) {
+            for (final NamedComparator comparator : NAMED_COMPARATORS) {
+                checkOperation(name, model, lists.getFirst(), lists.getSecond(), comparator);
+            }
+        }
+    }
+
+    private static void checkOperation(
+            final String method,
+            final BiFunction<SortedSet<Integer>, SortedSet<Integer>, SortedSet<Integer>> model,
+            final List<Integer> first,
+            final List<Integer> second,
+            final NamedComparator comparator
+    ) {
+        final NavigableSet<Integer> a = set(first, comparator);
+        final NavigableSet<Integer> b = set(second, comparator);
+        final String context = String.format("%s of %d and %d elements, %s", method, a.size(), b.size(), comparator);
+        assertEq(context, model.apply(a, b), invoke(method, a, b));
+        // a descending view returns a new reversed comparator on every call, so only the elements are compared
+        Assert.assertEquals("descending " + context, toList(model.apply(a.descendingSet(), b.descendingSet())),
+                toList(invoke(method, a.descendingSet(), b.descendingSet())));
+        assertEq("empty " + context, model.apply(a, set(List.of(), comparator)),
+                invoke(method, a, set(List.of(), comparator)));
+    }
+
+    private static SortedSet<Integer> union(final SortedSet<Integer> first, final SortedSet<Integer> second) {
+        final TreeSet<Integer> result = new TreeSet<>(first.comparator());
+        result.addAll(first);
+        result.addAll(second);
+        return result;
+    }
+
+    private static SortedSet<Integer> intersection(final SortedSet<Integer> first, final SortedSet<Integer> second) {
+        final TreeSet<Integer> result = new TreeSet<>(first.comparator());
+        first.stream().filter(second::contains).forEach(result::add);
+        return result;
+    }
+
+    private static SortedSet<Integer> difference(final SortedSet<Integer> first, final SortedSet<Integer> second) {
+        final TreeSet<Integer> result = new TreeSet<>(first.comparator());
+        first.stream().filter(e -> !second.contains(e)).forEach(result::add);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SortedSet<Integer> invoke(final String name, final SortedSet<Integer> first, final SortedSet<Integer> second) {
+        try {
+            final Method method = loadClass().getMethod(name, loadClass());
+            return (SortedSet<Integer>) method.invoke(first, second);
+        } catch (final InvocationTargetException e) {
+            throw new AssertionError("Error in " + name, e.getCause());
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot find method " + name + " of " + loadClass(), e);
+        }
+    }
+}
@@ -16,8 +16,16 @@ public final class Tester {
     public static void main(final String... args) {
         new BaseTester()
                 .add("SortedSet", SortedSetTest.class)
+                .add("Construction", ConstructionTest.class)
                 .add("NavigableSet", NavigableSetTest.class)
                 .add("AdvancedSet", AdvancedSetTest.class)
+                .add("SetAlgebra", SetAlgebraTest.class)
+                .add("PrimitiveSet", PrimitiveSetTest.class)
+                .add("MutableSet", MutableSetTest.class)
+                .add("OffHeapSet", OffHeapSetTest.class)
+                .add("MappedStringSet", MappedStringSetTest.class)
+                .add("BatchQuery", BatchQueryTest.class)
+                .add("OrderStatistics", OrderStatisticsTest.class)
                 .run(args);
     }
 }
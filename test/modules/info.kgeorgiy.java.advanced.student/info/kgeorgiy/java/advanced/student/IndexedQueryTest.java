@@ -0,0 +1,118 @@
+package info.kgeorgiy.java.advanced.student;
+
+import info.kgeorgiy.java.advanced.base.BaseTest;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Tests for a database built over a fixed collection of students: every {@link AdvancedQuery} method
+ * must answer exactly like {@code StudentDB} from the same package, for the indexed collection and for any other.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class IndexedQueryTest extends BaseTest {
+    private static final List<Student> STUDENTS = StudentQueryTest.STUDENTS;
+    private final Random random = new Random(4_872_349_823_475_234L);
+
+    public IndexedQueryTest() {
+    }
+
+    @Test
+    public void test01_indexedList() {
+        final AdvancedQuery db = create(STUDENTS);
+        check(db, STUDENTS);
+        check(db, STUDENTS.subList(0, 100));
+        check(db, List.of());
+    }
+
+    @Test
+    public void test02_indexedSet() {
+        final Set<Student> students = new LinkedHashSet<>(STUDENTS.subList(0, 200));
+        final AdvancedQuery db = create(students);
+        check(db, students);
+        check(db, List.copyOf(students));
+    }
+
+    @Test
+    public void test03_duplicateIds() {
+        final List<Student> students = new ArrayList<>(STUDENTS);
+        final Student first = STUDENTS.get(0);
+        students.add(new Student(first.getId(), first.getLastName(), first.getFirstName(), first.getGroup()));
+        Collections.shuffle(students, random);
+        check(create(students), students);
+    }
+
+    private void check(final AdvancedQuery db, final Collection<Student> students) {
+        final AdvancedQuery reference = reference();
+        for (final Method method : AdvancedQuery.class.getMethods()) {
+            for (final Object[] args : arguments(method, students)) {
+                final String context = method.getName() + " of " + students.size() + " students";
+                Assert.assertEquals(context, invoke(reference, method, args), invoke(db, method, args));
+            }
+        }
+    }
+
+    private List<Object[]> arguments(final Method method, final Collection<Student> students) {
+        final Class<?>[] types = method.getParameterTypes();
+        final Object collection = types[0] == List.class && !(students instanceof List)
+                ? List.copyOf(students) : students;
+        if (types.length == 1) {
+            return List.<Object[]>of(new Object[]{collection});
+        }
+        final List<Object[]> arguments = new ArrayList<>();
+        if (types[1] == GroupName.class) {
+            for (final GroupName group : GroupName.values()) {
+                arguments.add(new Object[]{collection, group});
+            }
+        } else if (types[1] == String.class) {
+            for (final Student student : students.stream().limit(10).toList()) {
+                arguments.add(new Object[]{collection, student.getFirstName()});
+                arguments.add(new Object[]{collection, student.getLastName()});
+            }
+            arguments.add(new Object[]{collection, "Nobody"});
+        } else if (types[1] == int[].class) {
+            final List<Student> shuffled = new ArrayList<>(students);
+            Collections.shuffle(shuffled, random);
+            arguments.add(new Object[]{collection, new int[0]});
+            arguments.add(new Object[]{collection, shuffled.stream().mapToInt(Student::getId).toArray()});
+        } else {
+            throw new AssertionError("Unexpected parameters of " + method);
+        }
+        return arguments;
+    }
+
+    // results are compared as values, failures by exception class
+    private static Object invoke(final AdvancedQuery db, final Method method, final Object[] args) {
+        try {
+            return method.invoke(db, args);
+        } catch (final InvocationTargetException e) {
+            return e.getCause().getClass();
+        } catch (final IllegalAccessException e) {
+            throw new AssertionError("Cannot call " + method, e);
+        }
+    }
+
+    private static AdvancedQuery create(final Collection<Student> students) {
+        try {
+            return (AdvancedQuery) loadClass().getConstructor(Collection.class).newInstance(students);
+        } catch (final InvocationTargetException e) {
+            throw new AssertionError("Cannot build database of " + students.size() + " students", e.getCause());
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot find constructor(Collection) of " + loadClass(), e);
+        }
+    }
+
+    private static AdvancedQuery reference() {
+        try {
+            return (AdvancedQuery) Class.forName(loadClass().getPackageName() + ".StudentDB")
+                    .getConstructor().newInstance();
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot create reference StudentDB", e);
+        }
+    }
+}
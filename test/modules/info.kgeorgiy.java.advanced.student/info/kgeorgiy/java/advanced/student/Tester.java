@@ -14,6 +14,7 @@ public final class Tester {
                 .add("StudentQuery", StudentQueryTest.class)
                 .add("GroupQuery", GroupQueryTest.class)
                 .add("AdvancedQuery", AdvancedQueryTest.class)
+                .add("IndexedQuery", IndexedQueryTest.class)
                 .run(args);
     }
 }
@@ -17,6 +17,8 @@ public final class Tester {
         new BaseTester()
                 .add("Walk", WalkTest.class)
                 .add("RecursiveWalk", RecursiveWalkTest.class)
+                .add("WalkOptions", WalkOptionsTest.class)
+                .add("XxHash64", XxHash64Test.class)
                 .add("AdvancedWalk", (tester, cut) -> {
                     tester.test("Walk", cut.replace(".RecursiveWalk", ".Walk"));
                     return tester.test("RecursiveWalk", cut);
@@ -0,0 +1,543 @@
+package info.kgeorgiy.java.advanced.walk;
+
+import info.kgeorgiy.java.advanced.base.BaseTest;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests for the options of {@code RecursiveWalk}: every mode is run on random trees and compared
+ * with the hashes computed here or with the output of a plain run.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class WalkOptionsTest extends BaseTest {
+    private static final Path DIR = Path.of("__Test__WalkOptions__");
+    private static final FileTime OLD_TIME = FileTime.fromMillis(1_600_000_000_000L);
+
+    private static final SimpleFileVisitor<Path> DELETE = new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+            Files.delete(file);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+            Files.delete(dir);
+            return FileVisitResult.CONTINUE;
+        }
+    };
+
+    protected final Random random = new Random(8_437_234_952_341_098L);
+
+    public WalkOptionsTest() {
+    }
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        if (Files.exists(DIR)) {
+            Files.walkFileTree(DIR, DELETE);
+        }
+    }
+
+    @Test
+    public void test01_threads() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 200, 50_000);
+        final List<String> inputs = List.of(root.toString(), root.resolve("missing").toString(), "bad\0name",
+                root.toString());
+        final List<String> expected = walk(inputs);
+        Assert.assertEquals("plain walk", expected("SHA-256", root), expected.subList(0, files(root).size()));
+        Assert.assertEquals("1 thread", expected, walk(inputs, "-threads", "1"));
+        Assert.assertEquals("2 threads", expected, walk(inputs, "-threads", "2"));
+        Assert.assertEquals("8 threads", expected, walk(inputs, "-threads", "8"));
+        Assert.assertEquals("8 threads, xxh64", walk(inputs, "-algorithm", "xxh64"),
+                walk(inputs, "-threads", "8", "-algorithm", "xxh64"));
+    }
+
+    // files from 16 MiB are mapped in windows of 256 MiB
+    @Test
+    public void test02_largeFiles() throws IOException {
+        final Path root = testDir().resolve("large");
+        Files.createDirectories(root);
+        final int mapThreshold = 16 * 1024 * 1024;
+        for (final int size : new int[]{mapThreshold - 1, mapThreshold, mapThreshold + 1, 256 * 1024 * 1024 + 4097}) {
+            Files.write(root.resolve("s" + size), randomBytes(size));
+        }
+        final List<String> expected = expected("SHA-256", root);
+        final List<String> inputs = List.of(root.toString());
+        Assert.assertEquals("mapped files", expected, walk(inputs));
+        Assert.assertEquals("mapped files, 2 threads", expected, walk(inputs, "-threads", "2"));
+        final List<String> xxh64 = new ArrayList<>();
+        for (final Path file : files(root)) {
+            xxh64.add(hex(XxHash64Test.digest().digest(Files.readAllBytes(file))) + " " + file);
+        }
+        Assert.assertEquals("mapped files, xxh64", xxh64, walk(inputs, "-algorithm", "xxh64"));
+    }
+
+    @Test
+    public void test10_cacheReusesUnchangedFiles() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 20, 1000);
+        final Path cache = testDir().resolve("walk.cache");
+        ageFiles(root);
+        final List<String> expected = expected("SHA-256", root);
+        Assert.assertEquals("first cached run", expected, walk(List.of(root.toString()), "-cache", cache.toString()));
+
+        // same size, same mtime, same inode: the stale hash must come from the cache
+        final Path changed = files(root).get(0);
+        final byte[] bytes = Files.readAllBytes(changed);
+        bytes[0] ^= 1;
+        Files.write(changed, bytes);
+        Files.setLastModifiedTime(changed, OLD_TIME);
+        Assert.assertEquals("cache hit", expected, walk(List.of(root.toString()), "-cache", cache.toString()));
+
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(OLD_TIME.toMillis() + 1000));
+        Assert.assertEquals("changed mtime", expected("SHA-256", root),
+                walk(List.of(root.toString()), "-cache", cache.toString()));
+    }
+
+    @Test
+    public void test11_cacheIgnoresOtherAlgorithmAndCorruptFile() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 10, 1000);
+        final Path cache = testDir().resolve("walk.cache");
+        ageFiles(root);
+        walk(List.of(root.toString()), "-cache", cache.toString());
+        Assert.assertEquals("other algorithm", expected("SHA-512/256", root),
+                walk(List.of(root.toString()), "-cache", cache.toString(), "-algorithm", "sha-512/256"));
+
+        final byte[] bytes = Files.readAllBytes(cache);
+        Files.write(cache, Arrays.copyOf(bytes, bytes.length / 2));
+        Assert.assertEquals("truncated cache", expected("SHA-256", root),
+                walk(List.of(root.toString()), "-cache", cache.toString()));
+    }
+
+    @Test
+    public void test12_cacheLongPaths() throws IOException {
+        Path dir = testDir();
+        while (dir.toAbsolutePath().toString().length() < 2000) {
+            dir = dir.resolve("d".repeat(200));
+        }
+        final Path root = randomTree(dir, 3, 100);
+        final Path cache = testDir().resolve("walk.cache");
+        ageFiles(root);
+        final List<String> expected = expected("SHA-256", root);
+        Assert.assertEquals("first run", expected, walk(List.of(root.toString()), "-cache", cache.toString()));
+        Assert.assertEquals("second run", expected, walk(List.of(root.toString()), "-cache", cache.toString()));
+    }
+
+    @Test
+    public void test20_algorithms() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 20, 10_000);
+        final List<String> inputs = List.of(root.toString());
+        Assert.assertEquals("sha-256", expected("SHA-256", root), walk(inputs, "-algorithm", "sha-256"));
+        Assert.assertEquals("sha-512/256", expected("SHA-512/256", root), walk(inputs, "-algorithm", "SHA-512/256"));
+
+        final List<String> xxh64 = walk(inputs, "-algorithm", "xxh64");
+        Assert.assertEquals("xxh64 files", files(root).size(), xxh64.size());
+        for (final String line : xxh64) {
+            Assert.assertTrue("xxh64 hash length " + line, line.matches("[0-9a-f]{16} .*"));
+        }
+    }
+
+    @Test
+    public void test21_unknownAlgorithm() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 3, 100);
+        final Path output = testDir().resolve("unknown.out");
+        run("-algorithm", "md4", root.toString(), output.toString());
+        Assert.assertFalse("output written for unknown algorithm", Files.exists(output));
+    }
+
+    @Test
+    public void test30_tree() throws IOException {
+        final Path root = testDir().resolve("tree");
+        Files.createDirectories(root);
+        for (final int size : new int[]{0, 1, 4095, 4096, 4097, 3 * 4096, 5 * 4096 + 1}) {
+            Files.write(root.resolve("s" + size), randomBytes(size));
+        }
+        randomTree(root.resolve("random"), 10, 100_000);
+        final List<String> inputs = List.of(root.toString());
+        Assert.assertEquals("sha-256", expectedTree("SHA-256", 4096, root), walk(inputs, "-tree", "4096"));
+        Assert.assertEquals("sha-512/256", expectedTree("SHA-512/256", 3 * 4096, root),
+                walk(inputs, "-tree", Integer.toString(3 * 4096), "-algorithm", "sha-512/256"));
+    }
+
+    @Test
+    public void test31_treeOfManySubtrees() throws IOException {
+        final Path root = testDir().resolve("tree");
+        Files.createDirectories(root);
+        Files.write(root.resolve("large"), randomBytes(40 * 1024 * 1024 + 12345));
+        Assert.assertEquals("large file", expectedTree("SHA-256", 4096, root),
+                walk(List.of(root.toString()), "-tree", "4096", "-threads", "2"));
+    }
+
+    @Test
+    public void test32_treeChunks() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 5, 20_000);
+        final Path chunks = testDir().resolve("chunks.txt");
+        walk(List.of(root.toString()), "-tree", "4096", "-treeChunks", chunks.toString());
+
+        final List<String> expected = new ArrayList<>(List.of("# chunks sha-256 4096"));
+        for (final Path file : files(root)) {
+            expected.add("# " + Files.size(file) + " " + Files.getLastModifiedTime(file) + " " + file);
+            final List<byte[]> leaves = leaves("SHA-256", 4096, Files.readAllBytes(file));
+            for (int i = 0; i < leaves.size(); i++) {
+                expected.add(hex(leaves.get(i)) + " " + file + "#" + i);
+            }
+        }
+        Assert.assertEquals("chunk file", expected, Files.readAllLines(chunks));
+    }
+
+    @Test
+    public void test33_treeChunkSize() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 3, 100);
+        final Path output = testDir().resolve("small.out");
+        run("-tree", "4095", root.toString(), output.toString());
+        Assert.assertFalse("output written for too small chunks", Files.exists(output));
+    }
+
+    @Test
+    public void test34_treeChunksWithoutTree() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 3, 100);
+        final Path output = testDir().resolve("flat.out");
+        final Path chunks = testDir().resolve("chunks.txt");
+        run("-treeChunks", chunks.toString(), root.toString(), output.toString());
+        Assert.assertFalse("output written for -treeChunks without -tree", Files.exists(output));
+        Assert.assertFalse("chunk file written without -tree", Files.exists(chunks));
+    }
+
+    @Test
+    public void test40_dedupLinks() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 10, 1000);
+        final Path original = root.resolve("original");
+        Files.write(original, randomBytes(5000));
+        Files.createLink(root.resolve("link"), original);
+        final List<String> inputs = List.of(original.toString(), root.toString(), root.toString());
+        final List<String> expected = walk(inputs);
+
+        final String errors = stderr(() -> Assert.assertEquals("dedup output", expected,
+                walk(inputs, "-dedupLinks", "on")));
+        // the link is the only other path of the file hashed first, repeated paths do not count
+        Assert.assertTrue("hard link report " + errors,
+                errors.contains("Hard links: 2 files reused, 10000 bytes not rehashed"));
+        Assert.assertEquals("parallel dedup output", expected, walk(inputs, "-dedupLinks", "on", "-threads", "3"));
+    }
+
+    @Test
+    public void test45_duplicates() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 30, 10_000);
+        final byte[] content = randomBytes(10_000);
+        final byte[] samePrefix = content.clone();
+        samePrefix[samePrefix.length - 1] ^= 1;
+        final byte[] sameSize = content.clone();
+        sameSize[0] ^= 1;
+        final Path group = Files.createDirectories(root.resolve("group"));
+        for (int i = 0; i < 3; i++) {
+            Files.write(group.resolve("copy" + i), content);
+        }
+        Files.write(group.resolve("samePrefix"), samePrefix);
+        Files.write(group.resolve("sameSize"), sameSize);
+        Files.write(group.resolve("small0"), new byte[]{1, 2, 3});
+        Files.write(root.resolve("small1"), new byte[]{1, 2, 3});
+        Files.write(group.resolve("empty0"), new byte[0]);
+        Files.write(group.resolve("empty1"), new byte[0]);
+
+        // equal files, empty ones included, each path once
+        final Map<String, List<Path>> byContent = new HashMap<>();
+        for (final Path file : files(root)) {
+            final byte[] bytes = Files.readAllBytes(file);
+            byContent.computeIfAbsent(hex(digest("SHA-256").digest(bytes)), k -> new ArrayList<>()).add(file);
+        }
+        final List<String> expected = new ArrayList<>();
+        byContent.values().removeIf(files -> files.size() < 2);
+        byContent.forEach((hash, files) -> files.forEach(file -> expected.add(hash + " " + file)));
+        Collections.sort(expected);
+
+        final Path input = testDir().resolve("duplicates.in");
+        final Path output = testDir().resolve("duplicates.out");
+        Files.write(input, List.of(root.toString(), root.resolve("missing").toString(), root.toString()));
+        final String errors = stderr(() -> runMain("DuplicateWalk", input.toString(), output.toString()));
+        final List<String> actual = new ArrayList<>(Files.readAllLines(output));
+        Collections.sort(actual);
+        Assert.assertEquals("duplicates", expected, actual);
+        Assert.assertTrue("duplicates report " + errors, errors.contains("Duplicates: " + byContent.size() + " groups"));
+    }
+
+    @Test
+    public void test50_queueDepth() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 100, 600_000);
+        final List<String> inputs = List.of(root.toString(), root.resolve("missing").toString(), root.toString());
+        final List<String> expected = walk(inputs);
+        Assert.assertEquals("queue depth 1", expected, walk(inputs, "-queueDepth", "1"));
+        Assert.assertEquals("queue depth 16", expected, walk(inputs, "-queueDepth", "16"));
+        Assert.assertEquals("queue depth 16, 3 threads", expected, walk(inputs, "-queueDepth", "16", "-threads", "3"));
+        Assert.assertEquals("xxh64", walk(inputs, "-algorithm", "xxh64"),
+                walk(inputs, "-queueDepth", "4", "-algorithm", "xxh64"));
+    }
+
+    @Test
+    public void test55_stats() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 50, 10_000);
+        final List<String> inputs = List.of(root.toString(), root.resolve("missing").toString(), root.toString());
+        final List<String> expected = walk(inputs);
+        final long files = 2L * files(root).size();
+        long bytes = 0;
+        for (final Path file : files(root)) {
+            bytes += 2 * Files.size(file);
+        }
+        final long directories;
+        try (Stream<Path> walk = Files.walk(root)) {
+            directories = 2 * walk.filter(Files::isDirectory).count();
+        }
+        final String counts = String.format("\"inputs\": 3, \"files\": %d, \"bytes\": %d, ", files, bytes);
+        final String tail = String.format("\"directories\": %d, \"errors\": 1, ", directories);
+
+        final Path stats = testDir().resolve("stats.json");
+        for (final String threads : List.of("1", "3")) {
+            Assert.assertEquals("output with -stats", expected,
+                    walk(inputs, "-stats", stats.toString(), "-threads", threads));
+            final String json = Files.readString(stats);
+            Assert.assertTrue("counts " + json, json.contains(counts));
+            Assert.assertTrue("directories and errors " + json, json.contains(tail));
+            Assert.assertTrue("latency " + json, json.contains("\"latencyNanos\": {\"p50\": "));
+        }
+
+        final String errors = stderr(() -> Assert.assertEquals("output with -progress", expected,
+                walk(inputs, "-progress", "60")));
+        final String line = String.format(" ms, 3 inputs, %d files, %d bytes ", files, bytes);
+        Assert.assertTrue("progress line " + errors, errors.startsWith("Walk: ") && errors.contains(line)
+                && errors.contains(String.format(", %d directories, 1 errors, ", directories)));
+    }
+
+    @Test
+    public void test60_checkpointResume() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 20, 20_000);
+        final List<String> inputs = files(root).stream().map(Path::toString).collect(Collectors.toList());
+        final Path chunks = testDir().resolve("chunks.txt");
+        final List<String> expected = walk(inputs, "-tree", "4096", "-treeChunks", chunks.toString());
+        final List<String> expectedChunks = Files.readAllLines(chunks);
+
+        final Path output = testDir().resolve("resumed.out");
+        final Path journal = testDir().resolve("journal");
+        final String[] options = {"-tree", "4096", "-treeChunks", chunks.toString(), "-checkpoint", journal.toString()};
+        walk(output, inputs.subList(0, 8), options);
+        // lines written after the last checkpoint of an interrupted run
+        Files.writeString(output, "garbage" + System.lineSeparator(), StandardOpenOption.APPEND);
+        Files.writeString(chunks, "garbage" + System.lineSeparator(), StandardOpenOption.APPEND);
+
+        final String[] resume = Stream.concat(Arrays.stream(options), Stream.of("-resume", "on"))
+                .toArray(String[]::new);
+        Assert.assertEquals("resumed output", expected, walk(output, inputs, resume));
+        Assert.assertEquals("resumed chunk file", expectedChunks, Files.readAllLines(chunks));
+        Assert.assertEquals("journal", inputs.size() + " " + Files.size(output) + " " + Files.size(chunks),
+                Files.readString(journal).strip());
+    }
+
+    @Test
+    public void test65_listThreads() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 100, 1000);
+        final Path wide = Files.createDirectories(root.resolve("wide"));
+        for (int i = 0; i < 300; i++) {
+            final Path dir = Files.createDirectories(wide.resolve("w" + i));
+            if (i % 3 == 0) {
+                Files.write(dir.resolve("f"), randomBytes(i));
+            }
+        }
+        Path deep = root.resolve("deep");
+        for (int i = 0; i < 50; i++) {
+            deep = Files.createDirectories(deep.resolve("d" + i));
+            Files.write(deep.resolve("f"), randomBytes(i));
+        }
+        final List<String> inputs = List.of(root.toString(), root.resolve("missing").toString(),
+                files(root).get(0).toString(), root.toString());
+        final List<String> expected = walk(inputs);
+        Assert.assertEquals("1 list thread", expected, walk(inputs, "-listThreads", "1"));
+        Assert.assertEquals("4 list threads", expected, walk(inputs, "-listThreads", "4"));
+        Assert.assertEquals("4 list threads, 3 hash threads", expected,
+                walk(inputs, "-listThreads", "4", "-threads", "3"));
+    }
+
+    @Test
+    public void test70_virtual() throws IOException {
+        final Path root = randomTree(testDir().resolve("tree"), 300, 10_000);
+        final List<String> inputs = List.of(root.toString(), root.resolve("missing").toString(), root.toString());
+        final List<String> expected = walk(inputs);
+        Assert.assertEquals("1 open file", expected, walk(inputs, "-virtual", "1"));
+        Assert.assertEquals("64 open files", expected, walk(inputs, "-virtual", "64"));
+        Assert.assertEquals("64 open files, tree", walk(inputs, "-tree", "4096"),
+                walk(inputs, "-virtual", "64", "-tree", "4096"));
+    }
+
+    protected static String stderr(final Runnable command) {
+        final PrintStream err = System.err;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            command.run();
+        } finally {
+            System.setErr(err);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    protected static List<String> expectedTree(final String algorithm, final int chunkSize, final Path root)
+            throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final Path file : files(root)) {
+            final List<byte[]> level = leaves(algorithm, chunkSize, Files.readAllBytes(file));
+            final MessageDigest digest = digest(algorithm);
+            while (level.size() > 1) {
+                final List<byte[]> next = new ArrayList<>();
+                for (int i = 0; i + 1 < level.size(); i += 2) {
+                    digest.update((byte) 1);
+                    digest.update(level.get(i));
+                    digest.update(level.get(i + 1));
+                    next.add(digest.digest());
+                }
+                if (level.size() % 2 == 1) {
+                    next.add(level.get(level.size() - 1));
+                }
+                level.clear();
+                level.addAll(next);
+            }
+            lines.add(hex(level.get(0)) + " " + file);
+        }
+        return lines;
+    }
+
+    private static List<byte[]> leaves(final String algorithm, final int chunkSize, final byte[] bytes) {
+        final MessageDigest digest = digest(algorithm);
+        final List<byte[]> leaves = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length || leaves.isEmpty(); offset += chunkSize) {
+            digest.update((byte) 0);
+            digest.update(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            leaves.add(digest.digest());
+        }
+        return leaves;
+    }
+
+    protected byte[] randomBytes(final int size) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    protected Path testDir() {
+        return DIR.resolve(testMethodName);
+    }
+
+    protected Path randomTree(final Path root, final int files, final int maxSize) throws IOException {
+        Files.createDirectories(root);
+        final List<Path> dirs = new ArrayList<>(List.of(root));
+        for (int i = 0; i < files; i++) {
+            Path dir = dirs.get(random.nextInt(dirs.size()));
+            if (random.nextInt(3) == 0) {
+                dir = Files.createDirectories(dir.resolve("d" + i));
+                dirs.add(dir);
+            }
+            Files.write(dir.resolve("f" + i), randomBytes(random.nextInt(maxSize + 1)));
+        }
+        return root;
+    }
+
+    protected static List<Path> files(final Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    // cached hashes are kept only for files that were not modified just before the run
+    protected static void ageFiles(final Path root) throws IOException {
+        for (final Path file : files(root)) {
+            Files.setLastModifiedTime(file, OLD_TIME);
+        }
+    }
+
+    protected static List<String> expected(final String algorithm, final Path... roots) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final Path root : roots) {
+            for (final Path file : files(root)) {
+                lines.add(hex(digest(algorithm).digest(Files.readAllBytes(file))) + " " + file);
+            }
+        }
+        return lines;
+    }
+
+    protected List<String> walk(final List<String> inputs, final String... options) {
+        return walk(testDir().resolve(testMethodName + ".out"), inputs, options);
+    }
+
+    protected List<String> walk(final Path output, final List<String> inputs, final String... options) {
+        final Path input = testDir().resolve(testMethodName + ".in");
+        try {
+            Files.createDirectories(input.getParent());
+            Files.write(input, inputs);
+            run(Stream.concat(Arrays.stream(options), Stream.of(input.toString(), output.toString()))
+                    .toArray(String[]::new));
+            return Files.readAllLines(output);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected static void run(final String... args) {
+        run(loadClass(), args);
+    }
+
+    // another main class from the package of the tested one
+    protected static void runMain(final String name, final String... args) {
+        try {
+            run(Class.forName(loadClass().getPackageName() + "." + name), args);
+        } catch (final ClassNotFoundException e) {
+            throw new AssertionError("Cannot find " + name, e);
+        }
+    }
+
+    private static void run(final Class<?> cut, final String... args) {
+        final Method method;
+        try {
+            method = cut.getMethod("main", String[].class);
+        } catch (final NoSuchMethodException e) {
+            throw new AssertionError("Cannot find method main(String[]) of " + cut, e);
+        }
+        try {
+            method.invoke(null, (Object) args);
+        } catch (final IllegalAccessException e) {
+            throw new AssertionError("Cannot call main(String[]) of " + cut, e);
+        } catch (final InvocationTargetException e) {
+            throw new AssertionError("Error thrown", e.getCause());
+        }
+    }
+
+    protected static MessageDigest digest(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError("Digest error: " + e.getMessage(), e);
+        }
+    }
+
+    protected static String hex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package info.kgeorgiy.java.advanced.walk;
+
+import info.kgeorgiy.java.advanced.base.BaseTest;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+/**
+ * Tests for the {@code xxh64} digest of the walk: reference vectors of XXH64 with zero seed
+ * and agreement of all {@link MessageDigest#update} paths.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class XxHash64Test extends BaseTest {
+    private final Random random = new Random(2_349_823_498_234_234L);
+
+    public XxHash64Test() {
+    }
+
+    @Test
+    public void test10_referenceVectors() {
+        checkVector("", "ef46db3751d8e999");
+        checkVector("a", "d24ec4f1a98c6e5b");
+        checkVector("abc", "44bc2cf5ad770999");
+        checkVector("Nobody inspects the spammish repetition", "fbcea83c8a378bf1");
+        checkVector("The quick brown fox jumps over the lazy dog", "0b242d361fda71bc");
+    }
+
+    private static void checkVector(final String input, final String expected) {
+        final byte[] hash = digest().digest(input.getBytes(StandardCharsets.US_ASCII));
+        Assert.assertEquals("xxh64(\"" + input + "\")", expected, WalkOptionsTest.hex(hash));
+    }
+
+    @Test
+    public void test20_heapBuffers() {
+        checkPaths((digest, data, from, to) -> {
+            final byte[] padded = new byte[data.length + 8];
+            System.arraycopy(data, from, padded, 3, to - from);
+            final ByteBuffer wrapped = ByteBuffer.wrap(padded, 3, to - from);
+            digest.update((from & 1) == 0 ? wrapped : wrapped.slice());
+        });
+    }
+
+    @Test
+    public void test21_directBuffers() {
+        checkPaths((digest, data, from, to) -> {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(to - from + 5);
+            buffer.position(5);
+            buffer.put(data, from, to - from).position(5);
+            digest.update(buffer);
+            Assert.assertFalse("direct buffer is not consumed", buffer.hasRemaining());
+        });
+    }
+
+    @Test
+    public void test22_singleBytes() {
+        checkPaths((digest, data, from, to) -> {
+            for (int i = from; i < to; i++) {
+                digest.update(data[i]);
+            }
+        });
+    }
+
+    @Test
+    public void test23_mixedUpdates() {
+        checkPaths((digest, data, from, to) -> {
+            switch ((from + to) % 3) {
+                case 0 -> digest.update(data, from, to - from);
+                case 1 -> digest.update(ByteBuffer.allocateDirect(to - from).put(data, from, to - from).flip());
+                default -> {
+                    for (int i = from; i < to; i++) {
+                        digest.update(data[i]);
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void test30_reuseAfterDigest() {
+        final MessageDigest digest = digest();
+        final byte[] data = randomBytes(1000);
+        final byte[] first = digest.digest(data);
+        digest.update(randomBytes(17));
+        digest.reset();
+        Assert.assertArrayEquals("after reset", first, digest.digest(data));
+        Assert.assertArrayEquals("after digest", first, digest.digest(data));
+    }
+
+    // every length up to a few stripes, split into random chunks
+    private void checkPaths(final Update update) {
+        for (int length = 0; length < 300; length++) {
+            checkPaths(update, randomBytes(length));
+        }
+        checkPaths(update, randomBytes(100_003));
+    }
+
+    private void checkPaths(final Update update, final byte[] data) {
+        final byte[] expected = digest().digest(data);
+        final MessageDigest digest = digest();
+        for (int from = 0; from < data.length; ) {
+            final int to = Math.min(data.length, from + 1 + random.nextInt(70));
+            update.update(digest, data, from, to);
+            from = to;
+        }
+        Assert.assertArrayEquals("length " + data.length, expected, digest.digest());
+    }
+
+    private byte[] randomBytes(final int length) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    static MessageDigest digest() {
+        try {
+            final Class<?> algorithms = Class.forName(loadClass().getPackageName() + ".HashAlgorithm");
+            final Object xxh64 = algorithms.getMethod("byName", String.class).invoke(null, "xxh64");
+            return (MessageDigest) algorithms.getMethod("newDigest").invoke(xxh64);
+        } catch (final ReflectiveOperationException e) {
+            throw new AssertionError("Cannot create xxh64 digest", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Update {
+        void update(MessageDigest digest, byte[] data, int from, int to);
+    }
+}